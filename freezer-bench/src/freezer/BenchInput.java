@@ -0,0 +1,47 @@
+package freezer;
+
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/***
+ * Synthetic input for benchmarks, read from in-memory {@link InputGenerator} workbook
+ */
+final class BenchInput {
+	public final Geom geom;
+	public final TEProps props;
+	public final Conditions cond;
+
+	/***
+	 * @param nLayers solid layers count, odd, 3..{@link InputGenerator#maxLayers}
+	 * @param nTable TE properties table size
+	 * @throws InputDataException
+	 */
+	BenchInput(final int nLayers, final int nTable) throws InputDataException {
+		if (Main.LOG == null) {
+			Main.LOG = new MathLogger(MathLogger.Level.OFF);
+		}
+		try (XSSFWorkbook wb = new InputGenerator(nLayers, nTable, 100., 0.1, 10).create()) {
+			FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+			ExcelData te = new ExcelData(wb.getSheet(Main.sheetNameThermoelectric), evaluator);
+			geom = new Geom(te);
+			props = new TEProps(te);
+			cond = new Conditions(new ExcelData(wb.getSheet(Main.sheetNameConditions), evaluator));
+			geom.updateMargins(cond);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/***
+	 * @return initial temperatures for {@link ThermalState} (inner junction colder)
+	 */
+	double[] getInitialT() {
+		double[] T = new double[geom.Nlayers - 1];
+		for (int i = 0; i < T.length; i++) {
+			T[i] = i <= geom.Xlayer ? 10. : 30.;
+		}
+		return T;
+	}
+}
@@ -0,0 +1,33 @@
+package freezer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/***
+ * Benchmarks entry point: JMH command line (e.g. <code>ThermalState -p layers=7</code>)
+ * with GC profiler (allocation rate, bytes per operation, GC count) always on
+ */
+public class BenchMain {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats()) {
+			try {
+				org.openjdk.jmh.Main.main(args);
+			} catch (Exception e) {
+				throw new RunnerException(e);
+			}
+			return;
+		}
+		Options opts = new OptionsBuilder()
+				.parent(cmd)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opts).run();
+	}
+}
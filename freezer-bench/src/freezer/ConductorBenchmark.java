@@ -0,0 +1,51 @@
+package freezer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freezer.Geom.Conductor;
+
+/***
+ * {@link Conductor#getConductorRho(double)} over the whole table range (including extrapolation)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConductorBenchmark {
+	private static final int nPoints = 64;
+
+	@Param({"Cu", "Ni"})
+	public String conductor;
+
+	private Conductor c;
+	private final double[] T = new double[nPoints];
+	private int k = 0;
+
+	@Setup
+	public void setup() {
+		c = Conductor.get(conductor);
+		for (int i = 0; i < nPoints; i++) {
+			T[i] = -100. + 450. * i / nPoints;
+		}
+	}
+
+	@Benchmark
+	public double getConductorRho() {
+		k = (k + 1) % nPoints;
+		return c.getConductorRho(T[k]);
+	}
+}
@@ -0,0 +1,69 @@
+package freezer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * Result row write {@link ExcelData#setString(int, int, ArrayList)} to in-memory (XSSF)
+ * or streaming (SXSSF, default row window) sheet, a new workbook every iteration
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExcelDataBenchmark {
+	@Param({"10", "60"})
+	public int columns;
+
+	@Param({"false", "true"})
+	public boolean streaming;
+
+	private final ArrayList<Object> vals = new ArrayList<>();
+	private Workbook workbook;
+	private ExcelData sheet;
+	private int row;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		workbook = streaming ? new SXSSFWorkbook() : new XSSFWorkbook();
+		sheet = new ExcelData(workbook.createSheet("Per meter"), null);
+		row = 0;
+		vals.clear();
+		for (int k = 0; k < columns; k++) {
+			vals.add(k % 10 == 9 ? (Object) Boolean.TRUE : (Object) (k * 1.2345));
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		if (workbook instanceof SXSSFWorkbook) {
+			((SXSSFWorkbook) workbook).dispose();
+		}
+		workbook.close();
+	}
+
+	@Benchmark
+	public void setString() {
+		sheet.setString(++row, 0, vals);
+	}
+}
@@ -0,0 +1,116 @@
+package freezer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/***
+ * End-to-end benchmark: generated input (see {@link InputGenerator}) is read, calculated and written
+ * by {@link Main#run()} with the usual flags (<code>-csv</code>, <code>-scheme=bdf2</code> etc.)<br>
+ * Every size gets a not recorded warm up run, then <code>-repeat</code> measured runs.
+ * Rows (wall time, simulated steps per second, peak heap) are appended to <code>-out</code> csv file<br>
+ * <code>java -cp benchmarks.jar freezer.MacroBenchmark [-sizes=7:22:1000:0.1:10,...] [-repeat=3]
+ * [-out=macro_results.csv] [freezer flags]</code>
+ */
+public class MacroBenchmark {
+	private static final String[] defaultSizes = {
+			"7:22:1000:0.1:10",
+			"7:22:10000:0.1:100",
+			"35:22:1000:0.1:10",
+			"7:512:1000:0.1:10",
+	};
+
+	public static void main(String[] args) throws Exception {
+		String[] sizes = defaultSizes;
+		int repeat = 3;
+		String out = "macro_results.csv";
+		StringBuilder flags = new StringBuilder();
+		for (String str : args) {
+			if (str.startsWith("-sizes=")) {
+				sizes = str.substring("-sizes=".length()).split(",");
+			} else if (str.startsWith("-repeat=")) {
+				repeat = Integer.parseInt(str.substring("-repeat=".length()));
+			} else if (str.startsWith("-out=")) {
+				out = str.substring("-out=".length());
+			} else {
+				flags.append(flags.length() > 0 ? " " : "").append(str);
+			}
+		}
+		Main.parseArgs(args);
+		Main.LOG = new MathLogger(Main.LOG_LEVEL);
+
+		File outFile = new File(out);
+		boolean header = !outFile.exists() || outFile.length() == 0;
+		Path dir = Files.createTempDirectory("freezer-macro");
+		try (PrintWriter pw = new PrintWriter(new FileWriter(outFile, true))) {
+			if (header) {
+				pw.println("size,flags,run,steps,ms,steps/s,peak heap MB");
+			}
+			for (String size : sizes) {
+				InputGenerator gen = InputGenerator.parse(size);
+				File fileIn = dir.resolve("in_" + size.replace(':', '_') + ".xlsx").toFile();
+				gen.write(fileIn);
+				for (int run = 0; run <= repeat; run++) {
+					System.gc();
+					resetPeakHeap();
+					long nano = System.nanoTime();
+					new Main(fileIn).run();
+					long ns = System.nanoTime() - nano;
+					if (run == 0) {
+						continue;
+					}
+					String row = String.format(Locale.ROOT, "%s,\"%s\",%d,%d,%.1f,%.1f,%.1f",
+							size, flags, run, gen.getSteps(), ns / 1e6, gen.getSteps() / (ns / 1e9),
+							getPeakHeap() / 1048576.);
+					pw.println(row);
+					pw.flush();
+					System.out.println(row);
+				}
+			}
+		} finally {
+			Main.LOG.close();
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+			} catch (IOException e) {
+				System.out.println("Can't delete \"" + dir + "\": " + e.getMessage());
+			}
+		}
+	}
+
+	private static ArrayList<MemoryPoolMXBean> getHeapPools() {
+		ArrayList<MemoryPoolMXBean> pools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pools.add(pool);
+			}
+		}
+		return pools;
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : getHeapPools()) {
+			pool.resetPeakUsage();
+		}
+	}
+
+	/***
+	 * @return sum of heap pools peak usage (upper bound of the real peak), bytes
+	 */
+	private static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : getHeapPools()) {
+			peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+}
@@ -0,0 +1,63 @@
+package freezer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * Junction heat flows evaluation: {@link PrepareConsts} (TE properties averaging, resistances)
+ * and full {@link TECalcRes}, junction temperatures walk over a cycle so lookups are not constant
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TECalcResBenchmark {
+	private static final int nPoints = 64;
+
+	@Param({"8", "32", "128", "512"})
+	public int tableSize;
+
+	private Geom geom;
+	private TEProps props;
+	private double I;
+	private final double[] Tinner = new double[nPoints];
+	private final double[] Touter = new double[nPoints];
+	private int k = 0;
+
+	@Setup
+	public void setup() throws InputDataException {
+		BenchInput in = new BenchInput(7, tableSize);
+		geom = in.geom;
+		props = in.props;
+		I = in.cond.I;
+		for (int i = 0; i < nPoints; i++) {
+			Tinner[i] = -20. + 30. * i / nPoints;
+			Touter[i] = 25. + 10. * Math.sin(i);
+		}
+	}
+
+	@Benchmark
+	public PrepareConsts prepareConsts() {
+		k = (k + 1) % nPoints;
+		return new PrepareConsts(Tinner[k], Touter[k], geom, props);
+	}
+
+	@Benchmark
+	public TECalcRes calcRes() {
+		k = (k + 1) % nPoints;
+		return new TECalcRes(Tinner[k], Touter[k], I, geom, props);
+	}
+}
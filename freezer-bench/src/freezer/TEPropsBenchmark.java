@@ -0,0 +1,56 @@
+package freezer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * {@link TEProps#getIntAve} interval lookup and integral average, narrow (single table interval)
+ * and wide (cumulative integrals) temperature ranges
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TEPropsBenchmark {
+	private static final int nPoints = 64;
+
+	@Param({"8", "32", "128", "512"})
+	public int tableSize;
+
+	private TEProps props;
+	private final double[] T0 = new double[nPoints];
+	private int k = 0;
+
+	@Setup
+	public void setup() throws InputDataException {
+		props = new BenchInput(3, tableSize).props;
+		for (int i = 0; i < nPoints; i++) {
+			T0[i] = -40. + 100. * i / nPoints;
+		}
+	}
+
+	@Benchmark
+	public double narrow() {
+		k = (k + 1) % nPoints;
+		return TEProps.getIntAve(props.T_n, props.alpha_n, props.intAlpha_n, T0[k], T0[k] + 0.01);
+	}
+
+	@Benchmark
+	public double wide() {
+		k = (k + 1) % nPoints;
+		return TEProps.getIntAve(props.T_n, props.alpha_n, props.intAlpha_n, T0[k], T0[k] + 50.);
+	}
+}
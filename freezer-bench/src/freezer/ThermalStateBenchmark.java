@@ -0,0 +1,72 @@
+package freezer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * Time step solve: {@link ThermalState} construction (allocating) and
+ * {@link ThermalState#assemble} + {@link ThermalState#solve} into preallocated arrays (as {@link StepEngine} does)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThermalStateBenchmark {
+	@Param({"3", "7", "15", "35"})
+	public int layers;
+	/***
+	 * nodes per solid layer, see {@link Main#MESH}
+	 */
+	@Param({"1", "100"})
+	public int mesh;
+
+	private Geom geom;
+	private Conditions cond;
+	private TECalcRes cr;
+	private double[] T;
+	private double[] a, b, c, d, Tnew, cp, dp;
+	private final double dt = 0.1;
+
+	@Setup
+	public void setup() throws InputDataException {
+		Main.MESH = mesh;
+		BenchInput in = new BenchInput(layers, 22);
+		geom = in.geom;
+		cond = in.cond;
+		T = in.getInitialT();
+		cr = new TECalcRes(T[geom.Xlayer], T[geom.Xlayer + 1], in.cond.I, geom, in.props);
+		int n = T.length;
+		a = new double[n];
+		b = new double[n];
+		c = new double[n];
+		d = new double[n];
+		Tnew = new double[n];
+		cp = new double[n];
+		dp = new double[n];
+	}
+
+	@Benchmark
+	public ThermalState construct() {
+		return new ThermalState(geom, cond, T, cr, dt);
+	}
+
+	@Benchmark
+	public double[] assembleSolve() {
+		ThermalState.assemble(geom, cond, T, 1., cr.I, cr.Qc, cr.Qh, dt, a, b, c, d);
+		ThermalState.solve(geom, a, b, c, d, Tnew, cp, dp);
+		return Tnew;
+	}
+}
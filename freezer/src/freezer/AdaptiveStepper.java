@@ -0,0 +1,233 @@
+package freezer;
+
+import java.util.Arrays;
+
+/***
+ * Adaptive time step controller for {@link StepEngine}<br>
+ * Local error is estimated by the predictor - corrector difference (Milne's device), one solve per step:
+ * predictor P - polynomial through the last order + 1 accepted states extrapolated to the end of the step,
+ * error = max |T - P| * A / (A + B) over layers, A / (order + 1)! - scheme local error coefficient
+ * (implicit Euler: h^2, BDF2 with w = h / h1: (1 + w)^2 * h^3 / (w * (1 + 2w))),
+ * B / (order + 1)! - predictor one, h * (h + h1) * ... (h1 ... - previous steps).
+ * The first step (no history, dtMin long, so always accepted) is estimated by step doubling.<br>
+ * Local error ~ dt^(order + 1) (order 1 - implicit Euler, 2 - BDF2), so the next step is
+ * <code>dt * 0.9 * (tolerance / error)^(1 / (order + 1))</code> limited to [dtMin, dtMax]<br>
+ * Steps do not land on print times, states between steps are interpolated by the same polynomials
+ * (see {@link #interpolate(double, double[])})
+ */
+class AdaptiveStepper {
+	private static final double safety = 0.9;
+	private static final double maxShrink = 0.2;
+	/***
+	 * max step growth, keeps BDF2 step ratio within {@link StepEngine#maxStepRatio}
+	 */
+	private static final double maxGrowth = 2.;
+
+	private final StepEngine engine;
+	/***
+	 * local error tolerance, K
+	 */
+	private final double tolerance;
+	private final double dtMin;
+	private final double dtMax;
+	private final int order;
+	/***
+	 * error to step size exponent, 1 / (order + 1)
+	 */
+	private final double exponent;
+	/***
+	 * accepted states, the latest first (order + 2, step doubling adds its half step state too)
+	 */
+	private final double[] histTime;
+	private final double[][] histT;
+	private int histCount;
+	/***
+	 * predictor (or one full step of step doubling) buffer
+	 */
+	private final double[] layerT_pred;
+	/***
+	 * optional threshold events, checked on every accepted step
+	 */
+	private EventDetector events;
+
+	private double dt;
+	private double time;
+	private long accepted;
+	private long rejected;
+
+	/***
+	 * @param engine started engine
+	 * @param tolerance local error tolerance, K
+	 * @param dtMin min time step, s
+	 * @param dtMax max time step, s
+	 */
+	public AdaptiveStepper(
+			final StepEngine engine,
+			final double tolerance,
+			final double dtMin,
+			final double dtMax) {
+		this.engine = engine;
+		this.tolerance = tolerance;
+		this.dtMin = dtMin;
+		this.dtMax = Math.max(dtMin, dtMax);
+		this.order = engine.getOrder();
+		this.exponent = 1. / (order + 1);
+		this.dt = dtMin;
+		int n = engine.layerT_mod.length;
+		this.layerT_pred = new double[n];
+		this.histTime = new double[order + 2];
+		this.histT = new double[order + 2][n];
+		push(0., engine.layerT_mod);
+	}
+
+	public void setEvents(final EventDetector events) {
+		this.events = events;
+	}
+
+	/***
+	 * Makes one accepted step (rejected ones are repeated with a smaller step),
+	 * the step is cut to land on <code>timeTo</code>
+	 * @param timeTo time, s
+	 * @return true if a stop event is reached
+	 */
+	public boolean step(final double timeTo) {
+		while (true) {
+			boolean cut = time + dt > timeTo - dtMin * 1e-9;
+			double h = cut ? timeTo - time : dt;
+			boolean doubling = histCount <= order;
+
+			engine.saveState();
+			double err = 0.;
+			double errMult;
+			if (doubling) {
+				engine.step(h);
+				System.arraycopy(engine.layerT_mod, 0, layerT_pred, 0, layerT_pred.length);
+				engine.restoreState();
+				engine.step(h / 2.);
+				push(time + h / 2., engine.layerT_mod);
+				engine.step(h / 2.);
+				errMult = 1.;
+			} else {
+				lagrange(time + h, 0, order + 1, layerT_pred);
+				engine.step(h);
+				errMult = getErrorMult(h);
+			}
+			for (int i = 0; i < layerT_pred.length; i++) {
+				err = Math.max(err, Math.abs(engine.layerT_mod[i] - layerT_pred[i]));
+			}
+			err *= errMult;
+			double factor = err > 0.
+					? Math.min(maxGrowth, Math.max(maxShrink, safety * Math.pow(tolerance / err, exponent)))
+					: maxGrowth;
+			if (err <= tolerance || h <= dtMin) {
+				boolean stop = events != null && events.check(time, h, () -> {
+					engine.restoreState();
+					if (doubling) {
+						engine.step(h / 2.);
+						engine.step(h / 2.);
+					} else {
+						engine.step(h);
+					}
+				});
+				time = cut ? timeTo : time + h;
+				push(time, engine.layerT_mod);
+				accepted++;
+				// BDF2 step ratio is to the last engine step (half step of step doubling)
+				dt = Math.min(dtMax, Math.max(dtMin, Math.min(h * factor, maxGrowth * (doubling ? h / 2. : h))));
+				return stop;
+			} else {
+				engine.restoreState();
+				rejected++;
+				dt = Math.max(dtMin, h * factor);
+			}
+		}
+	}
+
+	/***
+	 * @param h step, s
+	 * @return predictor - corrector difference to local error multiplier A / (A + B), see {@link AdaptiveStepper}
+	 */
+	private double getErrorMult(final double h) {
+		double t = time + h;
+		double b = 1.;
+		for (int k = 0; k <= order; k++) {
+			b *= t - histTime[k];
+		}
+		double a;
+		if (order > 1) {
+			double w = h / (histTime[0] - histTime[1]);
+			a = (1. + w) * (1. + w) * h * h * h / (w * (1. + 2. * w));
+		} else {
+			a = h * h;
+		}
+		return a / (a + b);
+	}
+
+	/***
+	 * Temperatures between accepted steps (polynomial of the scheme order through the nearest accepted states)
+	 * @param t time, s, not later than {@link #getTime()}
+	 * @param out temperatures, see {@link ThermalState#layerT_mod}
+	 */
+	public void interpolate(final double t, final double[] out) {
+		int points = Math.min(order + 1, histCount);
+		int first = 0;
+		while (first + 1 < histCount && histTime[first + 1] > t) {
+			first++;
+		}
+		first = Math.max(0, Math.min(first, histCount - points));
+		lagrange(t, first, points, out);
+	}
+
+	/***
+	 * Lagrange polynomial through accepted states
+	 * @param t time, s
+	 * @param first first state index
+	 * @param points states count
+	 * @param out polynomial value
+	 */
+	private void lagrange(final double t, final int first, final int points, final double[] out) {
+		Arrays.fill(out, 0.);
+		for (int k = first; k < first + points; k++) {
+			double l = 1.;
+			for (int m = first; m < first + points; m++) {
+				if (m != k) {
+					l *= (t - histTime[m]) / (histTime[k] - histTime[m]);
+				}
+			}
+			double[] T = histT[k];
+			for (int i = 0; i < out.length; i++) {
+				out[i] += l * T[i];
+			}
+		}
+	}
+
+	/***
+	 * Adds accepted state, the oldest one is dropped
+	 * @param t time, s
+	 */
+	private void push(final double t, final double[] layerT_mod) {
+		double[] oldest = histT[histT.length - 1];
+		for (int k = histT.length - 1; k > 0; k--) {
+			histT[k] = histT[k - 1];
+			histTime[k] = histTime[k - 1];
+		}
+		histT[0] = oldest;
+		histTime[0] = t;
+		System.arraycopy(layerT_mod, 0, oldest, 0, oldest.length);
+		histCount = Math.min(histCount + 1, histT.length);
+	}
+
+	public double getTime() {
+		return time;
+	}
+	public double getDt() {
+		return dt;
+	}
+
+	@Override
+	public String toString() {
+		return "Adaptive step: tolerance = " + tolerance + " K, dt = [" + dtMin + ", " + dtMax + "] s"
+				+ ", accepted = " + accepted + ", rejected = " + rejected
+				+ ", solves = " + engine.getSolves();
+	}
+}
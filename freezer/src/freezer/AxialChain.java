@@ -0,0 +1,241 @@
+package freezer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Axial model: inner fluid flows ({@link Conditions#Ginner}) through the module rings one after another<br>
+ * Rings are grouped into blocks of equal rings count, every block is one {@link StepEngine} ring
+ * with its own temperatures and junction heat flows. Block k fluid gets
+ * <code>Ginner * CpInner / ringsPerBlock * (Tout(k-1) - T0(k))</code>, inlet of the first block is {@link Conditions#Tinner}.<br>
+ * Upwind flow is implicit and goes one way, so blocks are solved one by one from the inlet every step
+ * (time ~ blocks count). Ring currents come from the module wiring solve ({@link ElectricalNetwork})
+ * with the last step EMF and resistance of every ring, a block gets the mean current of its rings
+ */
+class AxialChain {
+	public static final String sheetNameAxial = "Axial";
+	public static final String sheetNameRings = "Rings";
+
+	private final Geom geom;
+	private final Conditions cond;
+	private final StepEngine[] blocks;
+	/***
+	 * rings count represented by one block
+	 */
+	private final double ringsPerBlock;
+	/***
+	 * mass flow * heat capacity per ring, W/K
+	 */
+	private final double flowCp;
+	private final boolean voltage;
+	private final ElectricalNetwork network;
+	/***
+	 * first network ring of every block (and rings count at the end), rings go along the flow
+	 */
+	private final int[] blockStart;
+
+	/***
+	 * @param geom
+	 * @param cond
+	 * @param props
+	 * @param blocksCount blocks count, limited to rings count in module
+	 */
+	public AxialChain(final Geom geom, final Conditions cond, final TEProps props, final int blocksCount) {
+		this.geom = geom;
+		this.cond = cond;
+		network = new ElectricalNetwork(geom, Main.WIRING);
+		blocks = new StepEngine[Math.max(1, Math.min(blocksCount, network.getRingsCount()))];
+		ringsPerBlock = geom.nRingsInBattery * geom.nBatteries / blocks.length;
+		flowCp = Math.max(0., cond.Ginner) * cond.CpInner / ringsPerBlock;
+		voltage = Math.abs(cond.I) < 1e-6;
+		for (int k = 0; k < blocks.length; k++) {
+			blocks[k] = new StepEngine(geom, cond, props);
+		}
+		blockStart = new int[blocks.length + 1];
+		for (int k = 0; k <= blocks.length; k++) {
+			blockStart[k] = (int) ((long) k * network.getRingsCount() / blocks.length);
+		}
+	}
+
+	/***
+	 * Switches current on, see {@link StepEngine#start()}
+	 */
+	public void start() {
+		step(StepEngine.startStep);
+	}
+
+	/***
+	 * Makes one step of every block from the inlet
+	 * @param dt time step, s
+	 */
+	public void step(final double dt) {
+		for (int k = 0; k < blocks.length; k++) {
+			for (int r = blockStart[k]; r < blockStart[k + 1]; r++) {
+				network.E[r] = blocks[k].getEmf();
+				network.R[r] = blocks[k].getRe();
+			}
+		}
+		if (voltage) {
+			network.solveVoltage(cond.V);
+		} else {
+			network.solveCurrent(cond.I);
+		}
+		double Tinlet = cond.Tinner;
+		for (int k = 0; k < blocks.length; k++) {
+			StepEngine b = blocks[k];
+			double I = 0.;
+			for (int r = blockStart[k]; r < blockStart[k + 1]; r++) {
+				I += network.I[r];
+			}
+			b.setNetworkI(I / (blockStart[k + 1] - blockStart[k]));
+			b.setFlow(flowCp, Tinlet);
+			b.step(dt);
+			Tinlet = b.layerT_mod[0];
+		}
+	}
+
+	public void setProfiler(final PhaseProfiler profiler) {
+		for (StepEngine b : blocks) {
+			b.setProfiler(profiler);
+		}
+	}
+
+	public int getBlocksCount() {
+		return blocks.length;
+	}
+
+	public StepEngine getBlock(final int k) {
+		return blocks[k];
+	}
+
+	/***
+	 * @return last (outlet) block
+	 */
+	public StepEngine getOutlet() {
+		return blocks[blocks.length - 1];
+	}
+
+	/***
+	 * @return fluid temperature at the module outlet, 'C
+	 */
+	public double getToutlet() {
+		return getOutlet().layerT_mod[0];
+	}
+
+	/***
+	 * @return module terminal current, A
+	 */
+	public double getI() {
+		return network.getTerminalI();
+	}
+
+	/***
+	 * @return heat absorbed from the inner side per module, W
+	 */
+	public double getQc() {
+		double sum = 0.;
+		for (StepEngine b : blocks) {
+			sum += b.getQc();
+		}
+		return sum * ringsPerBlock;
+	}
+
+	/***
+	 * @return electrical power consumption per module, W
+	 */
+	public double getPe() {
+		double sum = 0.;
+		for (StepEngine b : blocks) {
+			sum += b.getPe();
+		}
+		return sum * ringsPerBlock;
+	}
+
+	/***
+	 * @return module terminal voltage with the last step constants, V
+	 */
+	public double getV() {
+		return network.getTerminalV();
+	}
+
+	/***
+	 * @return heat taken by the fluid flow per module, W
+	 */
+	public double getQflow() {
+		return Math.max(0., cond.Ginner) * cond.CpInner * (cond.Tinner - getToutlet());
+	}
+
+	public ArrayList<Object> getHeaderArray() {
+		ArrayList<Object> strs = new ArrayList<>();
+		strs.add("time, s");
+		strs.add("Tinlet, 'C");
+		strs.add("Toutlet, 'C");
+		strs.add("I, A");
+		strs.add("V, V");
+		strs.add("Qc, W");
+		strs.add("Pe, W");
+		strs.add("COP");
+		strs.add("Qflow, W");
+		return strs;
+	}
+
+	/***
+	 * @return module row for {@link #getHeaderArray()}
+	 */
+	public ArrayList<Object> toStringArray(final double time) {
+		ArrayList<Object> strs = new ArrayList<>();
+		strs.add(time);
+		strs.add(cond.Tinner);
+		strs.add(getToutlet());
+		strs.add(getI());
+		strs.add(getV());
+		strs.add(getQc());
+		strs.add(getPe());
+		strs.add(getQc() / getPe());
+		strs.add(getQflow());
+		return strs;
+	}
+
+	/***
+	 * @return header and a row per block (first and last ring, fluid and junction temperatures,
+	 * heat flows per ring)
+	 */
+	public List<ArrayList<Object>> getProfile() {
+		ArrayList<ArrayList<Object>> rows = new ArrayList<>();
+		ArrayList<Object> row = new ArrayList<>();
+		row.add("block");
+		row.add("first ring");
+		row.add("last ring");
+		row.add("Tfluid, 'C");
+		row.add("TinJunct, 'C");
+		row.add("ToutJunct, 'C");
+		row.add("I, A");
+		row.add("Qc per ring, W");
+		row.add("Pe per ring, W");
+		row.add("COP");
+		rows.add(row);
+		for (int k = 0; k < blocks.length; k++) {
+			StepEngine b = blocks[k];
+			row = new ArrayList<>();
+			row.add((double) k);
+			row.add(Math.floor(k * ringsPerBlock) + 1.);
+			row.add(Math.floor((k + 1) * ringsPerBlock));
+			row.add(b.layerT_mod[0]);
+			row.add(b.layerT_mod[geom.Xlayer]);
+			row.add(b.layerT_mod[geom.Xlayer + 1]);
+			row.add(b.getI());
+			row.add(b.getQc());
+			row.add(b.getPe());
+			row.add(b.getCOP());
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		return "Axial model: " + blocks.length + " block(s), " + ringsPerBlock + " ring(s) per block, "
+				+ "flow * Cp per ring = " + flowCp + " W/K"
+				+ "\n" + network.toString();
+	}
+}
@@ -0,0 +1,146 @@
+package freezer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Headless batch mode: every input workbook is calculated in a bounded worker pool 
+ * and gets its own "_RESULT.xlsx"
+ */
+class BatchRunner {
+	private final List<File> files;
+	private final int threads;
+	
+	/***
+	 * Per file outcome
+	 */
+	private static class Outcome {
+		private final File file;
+		private final long ms;
+		private final String error;
+		
+		private Outcome(final File file, final long ms, final String error) {
+			this.file = file;
+			this.ms = ms;
+			this.error = error;
+		}
+	}
+	
+	/***
+	 * @param files input workbooks
+	 * @param threads worker threads, 0 - available processors
+	 */
+	public BatchRunner(final List<File> files, final int threads) {
+		this.files = files;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+	
+	/***
+	 * Expands command line paths: a file, a directory (all *.xlsx inside)
+	 * or a glob in the last path element (e.g. <code>runs/case_*.xlsx</code>)<br>
+	 * Previous outputs of every mode ({@link Main#outputSuffixes}) are skipped
+	 */
+	static List<File> findFiles(final List<String> paths) {
+		ArrayList<File> files = new ArrayList<>();
+		for (String str : paths) {
+			Path path = Paths.get(str);
+			String glob = "*.xlsx";
+			if (str.contains("*") || str.contains("?")) {
+				glob = path.getFileName().toString();
+				path = path.getParent() == null ? Paths.get(".") : path.getParent();
+			} else if (!Files.isDirectory(path)) {
+				files.add(path.toFile());
+				continue;
+			}
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(path, glob)) {
+				for (Path p : ds) {
+					if (Files.isRegularFile(p) && !isOutput(p.getFileName().toString())) {
+						files.add(p.toFile());
+					}
+				}
+			} catch (IOException e) {
+				Main.LOG.println("Can't list \"" + path + "\": " + e.getMessage());
+			}
+		}
+		files.sort(null);
+		return files;
+	}
+	
+	/***
+	 * @return true if the file name has an output suffix
+	 */
+	static boolean isOutput(final String name) {
+		for (String suffix : Main.outputSuffixes) {
+			if (name.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/***
+	 * Runs all files and prints summary
+	 * @return failures count
+	 */
+	public int run() {
+		Main.LOG.println("Batch: " + files.size() + " file(s), " + threads + " thread(s)");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Outcome>> futures = new ArrayList<>();
+		long nano = System.nanoTime();
+		try {
+			for (File file : files) {
+				futures.add(pool.submit(() -> calc(file)));
+			}
+			ArrayList<Outcome> outcomes = new ArrayList<>();
+			for (Future<Outcome> f : futures) {
+				try {
+					outcomes.add(f.get());
+				} catch (ExecutionException e) {
+					Main.LOG.println(e.getCause().toString());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			return printSummary(outcomes, (System.nanoTime() - nano) / 1_000_000L);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	private static Outcome calc(final File file) {
+		long nano = System.nanoTime();
+		String error = null;
+		try {
+			Main.process(file);
+		} catch (IOException | InputDataException | RuntimeException e) {
+			error = e.toString();
+		}
+		return new Outcome(file, (System.nanoTime() - nano) / 1_000_000L, error);
+	}
+	
+	private static int printSummary(final List<Outcome> outcomes, final long totalMs) {
+		int failures = 0;
+		Main.LOG.println("\n====batch summary====");
+		Main.LOG.println(String.format("%-40s|%10s|%s", "file", "time, ms", "status"));
+		for (Outcome o : outcomes) {
+			Main.LOG.println(String.format("%-40s|%10d|%s", 
+					o.file.getName(), o.ms, o.error == null ? "Ok" : "Failed: " + o.error));
+			if (o.error != null) {
+				failures++;
+			}
+		}
+		Main.LOG.println("Total " + outcomes.size() + " file(s), " + failures + " failed, " + totalMs + " ms");
+		return failures;
+	}
+}
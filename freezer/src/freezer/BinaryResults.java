@@ -0,0 +1,502 @@
+package freezer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import freezer.TECalcRes.NormalizationType;
+
+/***
+ * "_RESULT.bin" columnar output, written through memory mapped file<br>
+ * Layout:<br>
+ * <code>magic "FRZRES01" | long rows | long capacity | long trailer offset | int header length | header | data | trailer</code><br>
+ * fixed fields and data are little endian, header and trailer are written by {@link DataOutputStream}<br>
+ * header - sheets count, for every sheet: name (UTF), columns count, for every column: name (UTF), type byte
+ * (0 - double, 1 - boolean as 0/1, 2 - text)<br>
+ * data - 8 bytes aligned, every column is <code>double[capacity]</code>, first <code>rows</code> are valid
+ * (rows is updated with every row, so the file can be read while running)<br>
+ * trailer - text cells (count, column, row, UTF), summary (count, key UTF, type byte, value)
+ * and additional tables (count, name UTF, rows count, for every row: cells count, type byte, value),
+ * tables are missing in older files; written at close and at every {@link #sync()} (text cells so far)<br>
+ * {@link #convert(File)} turns it to "_RESULT.xlsx"
+ */
+class BinaryResults implements ResultsWriter {
+	static final String magic = "FRZRES01";
+	static final String fileSuffix = ".bin";
+	private static final int offsetRows = 8;
+	private static final int offsetTrailer = 24;
+	private static final int offsetHeader = 36;
+
+	static final byte typeDouble = 0;
+	static final byte typeBoolean = 1;
+	static final byte typeText = 2;
+
+	private final File file;
+	private final FileChannel channel;
+	private final long capacity;
+	/***
+	 * header rows, collected until the first data row
+	 */
+	private final EnumMap<NormalizationType, ArrayList<Object>> headers = new EnumMap<>(NormalizationType.class);
+	/***
+	 * first data rows, collected to take column types
+	 */
+	private final EnumMap<NormalizationType, ArrayList<Object>> firstRows = new EnumMap<>(NormalizationType.class);
+	/***
+	 * first column index of every sheet
+	 */
+	private final EnumMap<NormalizationType, Integer> firstColumn = new EnumMap<>(NormalizationType.class);
+	private final EnumMap<NormalizationType, Integer> columnsCount = new EnumMap<>(NormalizationType.class);
+	private MappedByteBuffer head;
+	private MappedByteBuffer[] columns;
+	private long dataOffset;
+
+	private final ArrayList<int[]> textCells = new ArrayList<>();
+	private final ArrayList<String> texts = new ArrayList<>();
+	private Map<String, Object> summary;
+	private final Map<String, List<ArrayList<Object>>> tables = new LinkedHashMap<>();
+	private long rows;
+
+	/***
+	 * @param file output file
+	 * @param capacity max data rows count
+	 * @throws IOException
+	 */
+	public BinaryResults(final File file, final long capacity) throws IOException {
+		this.file = file;
+		this.capacity = capacity;
+		if (capacity * 8L > Integer.MAX_VALUE) {
+			throw new IOException("Too many rows for binary results: " + capacity);
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		Main.LOG.println("Binary output \"" + file.getName() + "\", capacity = " + capacity + " rows");
+	}
+
+	/***
+	 * Appends to an existing file (resume from {@link Checkpoint}), later rows are overwritten
+	 * @param file output file
+	 * @param position valid rows count returned by {@link #sync()}
+	 * @throws IOException
+	 */
+	public BinaryResults(final File file, final long[] position) throws IOException {
+		this.file = file;
+		if (position.length != 1) {
+			throw new IOException("Checkpoint position is not the one of binary results");
+		}
+		rows = position[0];
+		int nColumns = 0;
+		try (Reader reader = new Reader(file)) {
+			if (reader.rows < rows) {
+				throw new IOException("File \"" + file.getName() + "\" has " + reader.rows
+						+ " rows, less than checkpoint position " + rows);
+			}
+			capacity = reader.capacity;
+			dataOffset = reader.dataOffset;
+			NormalizationType[] types = NormalizationType.values();
+			for (int s = 0; s < types.length; s++) {
+				firstColumn.put(types[s], reader.firstColumns.get(s));
+				columnsCount.put(types[s], reader.columnNames.get(s).size());
+				nColumns += reader.columnNames.get(s).size();
+			}
+			for (Map.Entry<Long, String> e : reader.texts.entrySet()) {
+				int row = (int) (long) e.getKey();
+				if (row < rows) {
+					textCells.add(new int[] { (int) (e.getKey() >>> 32), row });
+					texts.add(e.getValue());
+				}
+			}
+		} catch (InputDataException e) {
+			throw new IOException(e.getMessage());
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		map(nColumns);
+		head.putLong(offsetRows, rows);
+		Main.LOG.println("Binary output \"" + file.getName() + "\" is appended from row " + rows);
+	}
+
+	@Override
+	public void writeHeader(final NormalizationType type, final ArrayList<Object> vals) {
+		headers.put(type, new ArrayList<>(vals));
+	}
+
+	@Override
+	public void writeRow(final NormalizationType type, final int rowN, final ArrayList<Object> vals) throws IOException {
+		if (columns == null) {
+			firstRows.put(type, new ArrayList<>(vals));
+			if (firstRows.size() < NormalizationType.values().length) {
+				return;
+			}
+			start();
+			for (Map.Entry<NormalizationType, ArrayList<Object>> e : firstRows.entrySet()) {
+				writeRow(e.getKey(), rowN, e.getValue());
+			}
+			return;
+		}
+		long row = rowN - 1;
+		if (row < 0 || row >= capacity) {
+			throw new IOException("Binary results capacity exceeded: row " + rowN + ", capacity " + capacity);
+		}
+		int first = firstColumn.get(type);
+		int count = Math.min(vals.size(), columnsCount.get(type));
+		for (int k = 0; k < count; k++) {
+			Object x = vals.get(k);
+			double v;
+			if (x instanceof Double) {
+				v = (Double) x;
+			} else if (x instanceof Boolean) {
+				v = ((Boolean) x) ? 1. : 0.;
+			} else {
+				v = Double.NaN;
+				if (x != null && !x.toString().isEmpty()) {
+					textCells.add(new int[] { first + k, (int) row });
+					texts.add(x.toString());
+				}
+			}
+			columns[first + k].putDouble((int) (row * 8), v);
+		}
+		if (row + 1 > rows) {
+			rows = row + 1;
+			head.putLong(offsetRows, rows);
+		}
+	}
+
+	/***
+	 * Writes header and maps columns, types are taken from the first row of every sheet
+	 */
+	private void start() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int nColumns = 0;
+		out.writeInt(headers.size());
+		for (NormalizationType type : NormalizationType.values()) {
+			ArrayList<Object> names = headers.get(type);
+			ArrayList<Object> first = firstRows.get(type);
+			int count = Math.max(names.size(), first.size());
+			firstColumn.put(type, nColumns);
+			columnsCount.put(type, count);
+			nColumns += count;
+			out.writeUTF(ExcelResults.getSheetName(type));
+			out.writeInt(count);
+			for (int k = 0; k < count; k++) {
+				out.writeUTF(k < names.size() ? names.get(k).toString() : "");
+				Object x = k < first.size() ? first.get(k) : null;
+				out.writeByte(x instanceof Double ? typeDouble : x instanceof Boolean ? typeBoolean : typeText);
+			}
+		}
+		out.flush();
+		byte[] header = bytes.toByteArray();
+		dataOffset = (offsetHeader + header.length + 7) / 8 * 8;
+
+		ByteBuffer buf = ByteBuffer.allocate(offsetHeader + header.length).order(ByteOrder.LITTLE_ENDIAN);
+		buf.put(magic.getBytes("US-ASCII"));
+		buf.putLong(0L);
+		buf.putLong(capacity);
+		buf.putLong(0L);
+		buf.putInt(header.length);
+		buf.put(header);
+		buf.flip();
+		channel.write(buf, 0);
+
+		map(nColumns);
+	}
+
+	/***
+	 * Maps head and data columns of the file with written header
+	 */
+	private void map(final int nColumns) throws IOException {
+		head = channel.map(FileChannel.MapMode.READ_WRITE, 0, offsetHeader);
+		head.order(ByteOrder.LITTLE_ENDIAN);
+		columns = new MappedByteBuffer[nColumns];
+		for (int c = 0; c < nColumns; c++) {
+			columns[c] = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + c * capacity * 8L, capacity * 8L);
+			columns[c].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	@Override
+	public void writeSummary(final Map<String, Object> summary) {
+		this.summary = summary;
+	}
+
+	@Override
+	public void writeTable(final String name, final List<ArrayList<Object>> rows) {
+		tables.put(name, rows);
+	}
+
+	/***
+	 * Writes data and text cells so far to the storage device
+	 * @return valid rows count
+	 */
+	@Override
+	public long[] sync() throws IOException {
+		if (columns != null) {
+			for (MappedByteBuffer c : columns) {
+				c.force();
+			}
+			writeTrailer();
+		}
+		return new long[] {rows};
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (columns == null) {
+				return;
+			}
+			for (MappedByteBuffer c : columns) {
+				c.force();
+			}
+			writeTrailer();
+		} finally {
+			channel.close();
+		}
+		Main.LOG.println("Binary output \"" + file.getName() + "\": " + rows + " rows");
+	}
+
+	/***
+	 * Writes trailer after the data and its offset to the head
+	 */
+	private void writeTrailer() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(texts.size());
+		for (int i = 0; i < texts.size(); i++) {
+			out.writeInt(textCells.get(i)[0]);
+			out.writeInt(textCells.get(i)[1]);
+			out.writeUTF(texts.get(i));
+		}
+		out.writeInt(summary == null ? 0 : summary.size());
+		if (summary != null) {
+			for (Map.Entry<String, Object> e : summary.entrySet()) {
+				out.writeUTF(e.getKey());
+				writeValue(out, e.getValue());
+			}
+		}
+		out.writeInt(tables.size());
+		for (Map.Entry<String, List<ArrayList<Object>>> e : tables.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeInt(e.getValue().size());
+			for (ArrayList<Object> row : e.getValue()) {
+				out.writeInt(row.size());
+				for (Object x : row) {
+					writeValue(out, x);
+				}
+			}
+		}
+		out.flush();
+		long trailer = dataOffset + columns.length * capacity * 8L;
+		channel.write(ByteBuffer.wrap(bytes.toByteArray()), trailer);
+		channel.truncate(trailer + bytes.size());
+		head.putLong(offsetTrailer, trailer);
+		head.force();
+	}
+
+	private static void writeValue(final DataOutputStream out, final Object x) throws IOException {
+		if (x instanceof Double) {
+			out.writeByte(typeDouble);
+			out.writeDouble((Double) x);
+		} else if (x instanceof Boolean) {
+			out.writeByte(typeBoolean);
+			out.writeBoolean((Boolean) x);
+		} else {
+			out.writeByte(typeText);
+			out.writeUTF(String.valueOf(x));
+		}
+	}
+
+	private static Object readValue(final DataInputStream in) throws IOException {
+		switch (in.readByte()) {
+		case typeDouble:
+			return in.readDouble();
+		case typeBoolean:
+			return in.readBoolean();
+		default:
+			return in.readUTF();
+		}
+	}
+
+	/***
+	 * Read only view of a binary results file, columns are mapped lazily
+	 */
+	static class Reader implements Closeable {
+		private final FileChannel channel;
+		private final long rows;
+		private final long capacity;
+		private final long dataOffset;
+		private final ArrayList<String> sheetNames = new ArrayList<>();
+		private final ArrayList<List<String>> columnNames = new ArrayList<>();
+		private final ArrayList<Byte> columnTypes = new ArrayList<>();
+		private final ArrayList<Integer> firstColumns = new ArrayList<>();
+		private final ArrayList<MappedByteBuffer> mapped = new ArrayList<>();
+		private final Map<Long, String> texts = new LinkedHashMap<>();
+		private final Map<String, Object> summary = new LinkedHashMap<>();
+		private final Map<String, List<ArrayList<Object>>> tables = new LinkedHashMap<>();
+
+		public Reader(final File file) throws IOException, InputDataException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			ByteBuffer head = ByteBuffer.allocate(offsetHeader).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(head, 0);
+			head.flip();
+			byte[] m = new byte[magic.length()];
+			head.get(m);
+			if (!magic.contentEquals(new String(m, "US-ASCII"))) {
+				channel.close();
+				throw new InputDataException("\"" + file.getName() + "\" is not a binary results file");
+			}
+			rows = head.getLong();
+			capacity = head.getLong();
+			long trailer = head.getLong();
+			int headerLength = head.getInt();
+			dataOffset = (offsetHeader + headerLength + 7) / 8 * 8;
+
+			ByteBuffer header = ByteBuffer.allocate(headerLength);
+			channel.read(header, offsetHeader);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+			int nSheets = in.readInt();
+			int nColumns = 0;
+			for (int s = 0; s < nSheets; s++) {
+				sheetNames.add(in.readUTF());
+				int count = in.readInt();
+				ArrayList<String> names = new ArrayList<>();
+				firstColumns.add(nColumns);
+				for (int k = 0; k < count; k++) {
+					names.add(in.readUTF());
+					columnTypes.add(in.readByte());
+					mapped.add(null);
+				}
+				nColumns += count;
+				columnNames.add(names);
+			}
+			if (trailer > 0) {
+				ByteBuffer buf = ByteBuffer.allocate((int) (channel.size() - trailer));
+				channel.read(buf, trailer);
+				in = new DataInputStream(new ByteArrayInputStream(buf.array()));
+				int nTexts = in.readInt();
+				for (int i = 0; i < nTexts; i++) {
+					long key = ((long) in.readInt() << 32) | in.readInt();
+					texts.put(key, in.readUTF());
+				}
+				int nSummary = in.readInt();
+				for (int i = 0; i < nSummary; i++) {
+					String key = in.readUTF();
+					summary.put(key, readValue(in));
+				}
+				if (in.available() > 0) {
+					int nTables = in.readInt();
+					for (int i = 0; i < nTables; i++) {
+						String name = in.readUTF();
+						int nRows = in.readInt();
+						ArrayList<ArrayList<Object>> table = new ArrayList<>();
+						for (int r = 0; r < nRows; r++) {
+							int nCells = in.readInt();
+							ArrayList<Object> row = new ArrayList<>();
+							for (int k = 0; k < nCells; k++) {
+								row.add(readValue(in));
+							}
+							table.add(row);
+						}
+						tables.put(name, table);
+					}
+				}
+			}
+		}
+
+		public long getRows() {
+			return rows;
+		}
+		public List<String> getSheetNames() {
+			return sheetNames;
+		}
+		public List<String> getColumnNames(final int sheet) {
+			return columnNames.get(sheet);
+		}
+		public Map<String, Object> getSummary() {
+			return summary;
+		}
+		public Map<String, List<ArrayList<Object>>> getTables() {
+			return tables;
+		}
+
+		/***
+		 * @return cell value as written: Double, Boolean or String
+		 */
+		public Object get(final int sheet, final int column, final long row) throws IOException {
+			int c = firstColumns.get(sheet) + column;
+			if (mapped.get(c) == null) {
+				MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + c * capacity * 8L, rows * 8L);
+				buf.order(ByteOrder.LITTLE_ENDIAN);
+				mapped.set(c, buf);
+			}
+			double v = mapped.get(c).getDouble((int) (row * 8));
+			switch (columnTypes.get(c)) {
+			case typeBoolean:
+				return v != 0.;
+			case typeText:
+				String text = texts.get(((long) c << 32) | row);
+				return text == null ? "" : text;
+			default:
+				return v;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/***
+	 * Converts binary results to "_RESULT.xlsx" with the same sheets
+	 * @param fileIn binary results file
+	 * @throws IOException
+	 * @throws InputDataException
+	 */
+	static void convert(final File fileIn) throws IOException, InputDataException {
+		String path = fileIn.getAbsolutePath();
+		String fileOutPath = (path.endsWith(fileSuffix) ? path.substring(0, path.length() - fileSuffix.length()) : path) + ".xlsx";
+		try (
+				Reader reader = new Reader(fileIn);
+				ExcelResults out = new ExcelResults(fileOutPath)) {
+			NormalizationType[] types = NormalizationType.values();
+			ArrayList<Object> vals = new ArrayList<>();
+			for (int s = 0; s < reader.getSheetNames().size() && s < types.length; s++) {
+				vals.clear();
+				for (String name : reader.getColumnNames(s)) {
+					if (!name.isEmpty()) {
+						vals.add(name);
+					}
+				}
+				out.writeHeader(types[s], vals);
+				int nColumns = reader.getColumnNames(s).size();
+				for (long row = 0; row < reader.getRows(); row++) {
+					vals.clear();
+					for (int c = 0; c < nColumns; c++) {
+						vals.add(reader.get(s, c, row));
+					}
+					out.writeRow(types[s], (int) row + 1, vals);
+				}
+			}
+			out.writeSummary(reader.getSummary());
+			for (Map.Entry<String, List<ArrayList<Object>>> e : reader.getTables().entrySet()) {
+				out.writeTable(e.getKey(), e.getValue());
+			}
+			Main.LOG.println("\"" + fileIn.getName() + "\" converted: " + reader.getRows() + " rows");
+		}
+	}
+}
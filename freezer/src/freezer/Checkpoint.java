@@ -0,0 +1,162 @@
+package freezer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/***
+ * Fixed step transient state to resume a long run from: step counter, time, next result row,
+ * results output position ({@link ResultsWriter#sync()}) and {@link StepEngine} state
+ * (temperatures, current, constants and scheme history)<br>
+ * File: magic, then big endian values ({@link DataOutputStream}), written to a temporary file
+ * and moved over the previous checkpoint, so a killed run leaves the previous or the new one
+ */
+class Checkpoint {
+	public static final String fileSuffix = "_RESULT.ckpt";
+	private static final byte[] magic = "FRZCKP01".getBytes(StandardCharsets.US_ASCII);
+
+	/***
+	 * next step index and its start time, s
+	 */
+	public final long step;
+	public final double time;
+	/***
+	 * next result row
+	 */
+	public final int row;
+	/***
+	 * results output position, empty - results are not resumable
+	 */
+	public final long[] position;
+	private final double timeStep;
+	private final byte[] engineState;
+
+	private Checkpoint(
+			final long step,
+			final double time,
+			final int row,
+			final long[] position,
+			final double timeStep,
+			final byte[] engineState) {
+		this.step = step;
+		this.time = time;
+		this.row = row;
+		this.position = position;
+		this.timeStep = timeStep;
+		this.engineState = engineState;
+	}
+
+	/***
+	 * Writes checkpoint atomically (previous one is replaced)
+	 * @param path checkpoint file path
+	 * @param step next step index
+	 * @param time next step start time, s
+	 * @param row next result row
+	 * @param position results output position
+	 * @param timeStep fixed time step, s
+	 * @param engine
+	 * @throws IOException
+	 */
+	static void write(
+			final String path,
+			final long step,
+			final double time,
+			final int row,
+			final long[] position,
+			final double timeStep,
+			final StepEngine engine) throws IOException {
+		Path target = Paths.get(path);
+		Path tmp = Paths.get(path + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+			out.write(magic);
+			out.writeLong(step);
+			out.writeDouble(time);
+			out.writeInt(row);
+			out.writeDouble(timeStep);
+			out.writeInt(position.length);
+			for (long p : position) {
+				out.writeLong(p);
+			}
+			engine.writeState(out);
+			out.flush();
+			fos.getFD().sync();
+		}
+		try {
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/***
+	 * @param path checkpoint file path
+	 * @return checkpoint or null if there is no file
+	 * @throws IOException not a checkpoint file
+	 */
+	static Checkpoint read(final String path) throws IOException {
+		Path p = Paths.get(path);
+		if (!Files.exists(p)) {
+			Main.LOG.println("Checkpoint \"" + path + "\" is not found, run starts from the beginning");
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p)))) {
+			byte[] m = new byte[magic.length];
+			in.readFully(m);
+			for (int i = 0; i < magic.length; i++) {
+				if (m[i] != magic[i]) {
+					throw new IOException("File \"" + path + "\" is not a checkpoint");
+				}
+			}
+			long step = in.readLong();
+			double time = in.readDouble();
+			int row = in.readInt();
+			double timeStep = in.readDouble();
+			long[] position = new long[in.readInt()];
+			for (int i = 0; i < position.length; i++) {
+				position[i] = in.readLong();
+			}
+			ByteArrayOutputStream state = new ByteArrayOutputStream();
+			in.transferTo(state);
+			Checkpoint c = new Checkpoint(step, time, row, position, timeStep, state.toByteArray());
+			Main.LOG.println(c.toString());
+			return c;
+		}
+	}
+
+	/***
+	 * Sets checkpoint state to the engine
+	 * @param engine engine of the same input
+	 * @param cond
+	 * @throws IOException other time step or layers count
+	 */
+	void restore(final StepEngine engine, final Conditions cond) throws IOException {
+		if (timeStep != cond.timeStep) {
+			throw new IOException("Checkpoint time step " + timeStep + " s differs from input " + cond.timeStep + " s");
+		}
+		engine.readState(new DataInputStream(new ByteArrayInputStream(engineState)));
+	}
+
+	/***
+	 * Removes checkpoint of a finished run
+	 */
+	static void delete(final String path) throws IOException {
+		Files.deleteIfExists(Paths.get(path));
+	}
+
+	@Override
+	public String toString() {
+		return "Checkpoint: step = " + step + ", time = " + time + " s, row = " + row;
+	}
+}
@@ -7,10 +7,14 @@ import org.apache.poi.util.NotImplemented;
  * @author sdushenkov
  */
 public class Conditions {
-	@NotImplemented
-	private final double Ginner;
+	/***
+	 * Inner fluid mass flow through the module rings, kg/s<br>
+	 * <i> Used by axial model only, see {@link AxialChain}</i>
+	 */
+	public final double Ginner;
 	/***
 	 * Inner fluid initial temperature, 'C<br>
+	 * <i> Inlet temperature in axial model</i>
 	 */
 	public final double Tinner;
 	/***
@@ -83,7 +87,7 @@ public class Conditions {
 		CpInner = env.getDouble(4, 2, "CpInner", "J/kg/K");
 		alphaInner = env.getDouble(5, 2, "alphaInner", "W/m2/K");
 		areaInner = env.getDouble(6, 2, "areaInner", "m2");
-		rhoInner = env.getDouble(7, 2, "areaInner", "kg/m3");
+		rhoInner = env.getDouble(7, 2, "rhoInner", "kg/m3");
 		
 		Gouter = env.getDouble(11, 2, "Gouter", "kg/s");
 		Touter = env.getDouble(12, 2, "Touter", "'C");
@@ -97,6 +101,6 @@ public class Conditions {
 		
 		timeEnd = env.getDouble(25, 2, "Tend", "s");
 		timeStep = env.getDouble(26, 2, "delta T", "s");
-		nToPrint = (int) env.getDouble(27, 2, "delta T", "s");
+		nToPrint = (int) env.getDouble(27, 2, "nToPrint", "");
 	}
 }
@@ -0,0 +1,275 @@
+package freezer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import freezer.TECalcRes.NormalizationType;
+
+/***
+ * "_RESULT_meter.csv", "_RESULT_module.csv", "_RESULT_battery.csv", "_RESULT_ring.csv"
+ * (and "_RESULT_summary.csv", "_RESULT_&lt;table&gt;.csv") output<br>
+ * Rows are collected in a large buffer and written to the file channel by whole rows when the buffer is full
+ * or {@link #flushInterval} passed, so a running calculation can be tailed
+ */
+class CsvResults implements ResultsWriter {
+	private static final int bufferSize = 1 << 18;
+	/***
+	 * max time rows stay in the buffer, ns
+	 */
+	private static final long flushInterval = 1_000_000_000L;
+
+	/***
+	 * Single csv file
+	 */
+	private static final class Stream {
+		private final FileChannel channel;
+		private final ByteBuffer buf = ByteBuffer.allocateDirect(bufferSize);
+		private long lastFlush = System.nanoTime();
+
+		private Stream(final String path) throws IOException {
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		/***
+		 * Existing file, rows after length are dropped
+		 * @param length file length to append from, bytes
+		 */
+		private Stream(final String path, final long length) throws IOException {
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE);
+			if (channel.size() < length) {
+				channel.close();
+				throw new IOException("File \"" + path + "\" is shorter than checkpoint position " + length);
+			}
+			channel.truncate(length);
+			channel.position(length);
+		}
+
+		/***
+		 * @return file length with all rows written
+		 */
+		private long sync() throws IOException {
+			flush();
+			channel.force(false);
+			return channel.position();
+		}
+
+		private void write(final CharSequence line) throws IOException {
+			int n = line.length();
+			boolean ascii = true;
+			for (int i = 0; i < n && ascii; i++) {
+				ascii = line.charAt(i) < 0x80;
+			}
+			if (!ascii) {
+				byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+				if (bytes.length > buf.remaining()) {
+					flush();
+				}
+				if (bytes.length > buf.capacity()) {
+					channel.write(ByteBuffer.wrap(bytes));
+				} else {
+					buf.put(bytes);
+				}
+			} else {
+				if (n > buf.remaining()) {
+					flush();
+				}
+				if (n > buf.capacity()) {
+					channel.write(ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.US_ASCII)));
+				} else {
+					for (int i = 0; i < n; i++) {
+						buf.put((byte) line.charAt(i));
+					}
+				}
+			}
+			if (System.nanoTime() - lastFlush > flushInterval) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			buf.clear();
+			lastFlush = System.nanoTime();
+		}
+
+		private void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	private final String basePath;
+	/***
+	 * significant digits of numbers, see {@link DoubleText}
+	 */
+	private final int digits;
+	private final EnumMap<NormalizationType, Stream> streams = new EnumMap<>(NormalizationType.class);
+	private final StringBuilder line = new StringBuilder(1024);
+
+	/***
+	 * Opens all files at once, so a locked file fails before calculations
+	 * @param basePath output path without ".csv" ("_meter" etc. is added)
+	 * @param digits significant digits of numbers
+	 * @throws IOException
+	 */
+	public CsvResults(final String basePath, final int digits) throws IOException {
+		this.basePath = basePath;
+		this.digits = digits;
+		try {
+			for (NormalizationType type : NormalizationType.values()) {
+				streams.put(type, new Stream(getPath(type.toString())));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		Main.LOG.println("Csv output \"" + getPath("*") + "\", digits = " + digits);
+	}
+
+	/***
+	 * Appends to existing files (resume from {@link Checkpoint})
+	 * @param basePath output path without ".csv"
+	 * @param digits significant digits of numbers
+	 * @param position files lengths returned by {@link #sync()}
+	 * @throws IOException
+	 */
+	public CsvResults(final String basePath, final int digits, final long[] position) throws IOException {
+		this.basePath = basePath;
+		this.digits = digits;
+		if (position.length != NormalizationType.values().length) {
+			throw new IOException("Checkpoint position is not the one of csv results");
+		}
+		try {
+			for (NormalizationType type : NormalizationType.values()) {
+				streams.put(type, new Stream(getPath(type.toString()), position[type.ordinal()]));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		Main.LOG.println("Csv output \"" + getPath("*") + "\" is appended, digits = " + digits);
+	}
+
+	private String getPath(final String name) {
+		return basePath + "_" + name.toLowerCase(Locale.ROOT) + ".csv";
+	}
+
+	@Override
+	public void writeHeader(final NormalizationType type, final ArrayList<Object> vals) throws IOException {
+		writeRow(type, 0, vals);
+	}
+
+	/***
+	 * Rows have to go in order, rowN is not used
+	 */
+	@Override
+	public void writeRow(final NormalizationType type, final int rowN, final ArrayList<Object> vals) throws IOException {
+		setLine(vals);
+		streams.get(type).write(line);
+	}
+
+	/***
+	 * Sets {@link #line} to csv row of vals
+	 */
+	private void setLine(final ArrayList<Object> vals) {
+		line.setLength(0);
+		for (int k = 0; k < vals.size(); k++) {
+			if (k > 0) {
+				line.append(',');
+			}
+			append(vals.get(k));
+		}
+		line.append('\n');
+	}
+
+	private void append(final Object x) {
+		if (x instanceof Double) {
+			DoubleText.append(line, (Double) x, digits);
+		} else if (x instanceof Boolean) {
+			line.append(((Boolean) x).booleanValue());
+		} else if (x != null) {
+			String str = x.toString();
+			if (str.indexOf(',') >= 0 || str.indexOf('"') >= 0 || str.indexOf('\n') >= 0) {
+				line.append('"').append(str.replace("\"", "\"\"")).append('"');
+			} else {
+				line.append(str);
+			}
+		}
+	}
+
+	/***
+	 * @return every sheet file length, {@link NormalizationType} order
+	 */
+	@Override
+	public long[] sync() throws IOException {
+		long[] position = new long[NormalizationType.values().length];
+		for (NormalizationType type : NormalizationType.values()) {
+			position[type.ordinal()] = streams.get(type).sync();
+		}
+		return position;
+	}
+
+	@Override
+	public void writeSummary(final Map<String, Object> summary) throws IOException {
+		if (summary.isEmpty()) {
+			return;
+		}
+		Stream stream = new Stream(getPath(ExcelResults.sheetNameSummary));
+		try {
+			for (Map.Entry<String, Object> e : summary.entrySet()) {
+				line.setLength(0);
+				append(e.getKey());
+				line.append(',');
+				append(e.getValue());
+				line.append('\n');
+				stream.write(line);
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public void writeTable(final String name, final List<ArrayList<Object>> rows) throws IOException {
+		Stream stream = new Stream(getPath(name));
+		try {
+			for (ArrayList<Object> vals : rows) {
+				setLine(vals);
+				stream.write(line);
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException ex = null;
+		for (Stream s : streams.values()) {
+			try {
+				s.close();
+			} catch (IOException e) {
+				ex = e;
+			}
+		}
+		if (ex != null) {
+			throw ex;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package freezer;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/***
+ * Fast double to text with fixed significant digits count (no String.format, no allocations)<br>
+ * Plain notation for 1e-5 &lt;= |v| &lt; 1e15, otherwise scientific ("1.5E-7"), trailing zeros are trimmed.
+ * Up to {@link #maxFastDigits} digits the value is scaled in double and rounded, the last digit
+ * may be off by one only when the value is within scaling error of a tie; more digits are rounded
+ * exactly ({@link BigDecimal}, allocates), more than {@link #maxDigits} digits - {@link Double#toString(double)}
+ * (exact round trip)
+ */
+final class DoubleText {
+	static final int maxDigits = 15;
+	static final int maxFastDigits = 12;
+	private static final long[] pow10L = new long[19];
+	private static final double[] pow10D = new double[23];
+	static {
+		pow10L[0] = 1L;
+		for (int i = 1; i < pow10L.length; i++) {
+			pow10L[i] = pow10L[i - 1] * 10L;
+		}
+		pow10D[0] = 1.;
+		for (int i = 1; i < pow10D.length; i++) {
+			pow10D[i] = pow10D[i - 1] * 10.;
+		}
+	}
+
+	private DoubleText() {
+	}
+
+	/***
+	 * @param sb destination
+	 * @param v value
+	 * @param digits significant digits
+	 */
+	static void append(final StringBuilder sb, final double v, final int digits) {
+		if (Double.isNaN(v) || Double.isInfinite(v) || digits > maxDigits) {
+			sb.append(v);
+			return;
+		}
+		if (v == 0.) {
+			sb.append('0');
+			return;
+		}
+		if (v < 0.) {
+			sb.append('-');
+		}
+		final double a = Math.abs(v);
+		final int d = Math.max(1, Math.min(maxDigits, digits));
+		int e;
+		long m;
+		if (d > maxFastDigits) {
+			BigDecimal b = new BigDecimal(a).round(new MathContext(d, RoundingMode.HALF_UP));
+			m = b.unscaledValue().longValueExact() * pow10L[d - b.precision()];
+			e = b.precision() - b.scale() - 1;
+		} else {
+			e = (int) Math.floor(Math.log10(a));
+			m = scale(a, d - 1 - e);
+			if (m >= pow10L[d]) {
+				e++;
+				m = scale(a, d - 1 - e);
+			} else if (m < pow10L[d - 1]) {
+				e--;
+				m = scale(a, d - 1 - e);
+			}
+			if (m >= pow10L[d]) {
+				// rounding carry (9.99 -> 10.0)
+				m /= 10;
+				e++;
+			}
+		}
+		int n = d;
+		while (n > 1 && m % 10 == 0) {
+			m /= 10;
+			n--;
+		}
+
+		if (e >= -5 && e < 15) {
+			if (e >= 0) {
+				appendDigits(sb, m, n, 0, Math.min(n, e + 1));
+				for (int i = n; i < e + 1; i++) {
+					sb.append('0');
+				}
+				if (n > e + 1) {
+					sb.append('.');
+					appendDigits(sb, m, n, e + 1, n);
+				}
+			} else {
+				sb.append("0.");
+				for (int i = 0; i < -e - 1; i++) {
+					sb.append('0');
+				}
+				appendDigits(sb, m, n, 0, n);
+			}
+		} else {
+			appendDigits(sb, m, n, 0, 1);
+			if (n > 1) {
+				sb.append('.');
+				appendDigits(sb, m, n, 1, n);
+			}
+			sb.append('E').append(e);
+		}
+	}
+
+	/***
+	 * @return round(a * 10^s)
+	 */
+	private static long scale(final double a, final int s) {
+		if (s >= 0) {
+			if (s < pow10D.length) {
+				return Math.round(a * pow10D[s]);
+			}
+			return Math.round(a * 1e300 * Math.pow(10., s - 300));
+		}
+		if (-s < pow10D.length) {
+			return Math.round(a / pow10D[-s]);
+		}
+		return Math.round(a / Math.pow(10., -s));
+	}
+
+	/***
+	 * Appends digits [from, to) of n digits number m
+	 */
+	private static void appendDigits(final StringBuilder sb, final long m, final int n, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			sb.append((char) ('0' + (m / pow10L[n - 1 - i]) % 10));
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package freezer;
+
+import freezer.TECalcRes.NormalizationType;
+
+/***
+ * Module wiring: batteries in series or in parallel, rings of every battery in series or in parallel<br>
+ * Every ring is a source with its own EMF E (Seebeck, from its junction temperatures)
+ * and resistance R (<code>Re_semi + Re_inner + Re_outer</code>): <code>U = E + I * R</code>.<br>
+ * Series-parallel network is solved by reduction: series - <code>E = sum(E), R = sum(R)</code>,
+ * parallel - <code>R = 1 / sum(1 / R), E = R * sum(E / R)</code>, then terminal current (given or
+ * <code>(V - E) / R</code> for given voltage) is distributed back to the rings (time ~ rings count)<br>
+ * Wiring code: batteries connection and rings connection, "s" - series, "p" - parallel
+ * ("ss" - every ring in series, the only case with the same current in every ring)
+ */
+class ElectricalNetwork {
+	public static final String defaultWiring = "ss";
+
+	enum Connection {
+		SERIES, PARALLEL;
+		static Connection get(final char c) {
+			switch (c) {
+			case 's':
+				return SERIES;
+			case 'p':
+				return PARALLEL;
+			default:
+				throw new IllegalArgumentException("Unknown connection '" + c + "', expected 's' or 'p'");
+			}
+		}
+	}
+
+	private final Connection batteries;
+	private final Connection rings;
+	private final int nBatteries;
+	private final int nRings;
+	/***
+	 * ring EMF, V, and resistance, Ohm, ring r of battery b has index b * nRings + r (in)
+	 */
+	public final double[] E;
+	public final double[] R;
+	/***
+	 * ring currents, A (out)
+	 */
+	public final double[] I;
+	/***
+	 * battery equivalent source buffers
+	 */
+	private final double[] Eb;
+	private final double[] Rb;
+	private double terminalI;
+	private double terminalV;
+
+	/***
+	 * @param geom rings and batteries count
+	 * @param wiring wiring code, see {@link #checkWiring(String)}
+	 */
+	public ElectricalNetwork(final Geom geom, final String wiring) {
+		batteries = Connection.get(wiring.charAt(0));
+		rings = Connection.get(wiring.charAt(1));
+		nBatteries = (int) Math.max(1, Math.round(geom.nBatteries));
+		nRings = (int) Math.max(1, Math.round(geom.nRingsInBattery));
+		E = new double[nBatteries * nRings];
+		R = new double[nBatteries * nRings];
+		I = new double[nBatteries * nRings];
+		Eb = new double[nBatteries];
+		Rb = new double[nBatteries];
+	}
+
+	/***
+	 * @return wiring code if valid
+	 * @throws IllegalArgumentException
+	 */
+	static String checkWiring(final String wiring) {
+		if (wiring.length() != 2) {
+			throw new IllegalArgumentException("Wiring \"" + wiring + "\" is not two letters (batteries, rings)");
+		}
+		Connection.get(wiring.charAt(0));
+		Connection.get(wiring.charAt(1));
+		return wiring;
+	}
+
+	public int getRingsCount() {
+		return E.length;
+	}
+
+	/***
+	 * Solves ring currents for given module voltage
+	 * @param V module voltage, V
+	 */
+	public void solveVoltage(final double V) {
+		reduce();
+		double Em = 0.;
+		double Rm = 0.;
+		if (batteries == Connection.SERIES) {
+			for (int b = 0; b < nBatteries; b++) {
+				Em += Eb[b];
+				Rm += Rb[b];
+			}
+		} else {
+			double G = 0.;
+			for (int b = 0; b < nBatteries; b++) {
+				G += 1. / Rb[b];
+				Em += Eb[b] / Rb[b];
+			}
+			Rm = 1. / G;
+			Em *= Rm;
+		}
+		distribute((V - Em) / Rm, V);
+	}
+
+	/***
+	 * Solves ring currents for given module current
+	 * @param I module terminal current, A
+	 */
+	public void solveCurrent(final double I) {
+		reduce();
+		double V;
+		if (batteries == Connection.SERIES) {
+			V = 0.;
+			for (int b = 0; b < nBatteries; b++) {
+				V += Eb[b] + I * Rb[b];
+			}
+		} else {
+			double G = 0.;
+			double J = 0.;
+			for (int b = 0; b < nBatteries; b++) {
+				G += 1. / Rb[b];
+				J += Eb[b] / Rb[b];
+			}
+			V = (I + J) / G;
+		}
+		distribute(I, V);
+	}
+
+	/***
+	 * Batteries equivalent sources
+	 */
+	private void reduce() {
+		for (int b = 0; b < nBatteries; b++) {
+			int k0 = b * nRings;
+			double e = 0.;
+			double r = 0.;
+			if (rings == Connection.SERIES) {
+				for (int k = k0; k < k0 + nRings; k++) {
+					e += E[k];
+					r += R[k];
+				}
+			} else {
+				double G = 0.;
+				for (int k = k0; k < k0 + nRings; k++) {
+					G += 1. / R[k];
+					e += E[k] / R[k];
+				}
+				r = 1. / G;
+				e *= r;
+			}
+			Eb[b] = e;
+			Rb[b] = r;
+		}
+	}
+
+	/***
+	 * Terminal current and voltage to ring currents
+	 */
+	private void distribute(final double Im, final double Vm) {
+		terminalI = Im;
+		terminalV = Vm;
+		for (int b = 0; b < nBatteries; b++) {
+			double Ib = batteries == Connection.SERIES ? Im : (Vm - Eb[b]) / Rb[b];
+			double Ub = Eb[b] + Ib * Rb[b];
+			int k0 = b * nRings;
+			for (int k = k0; k < k0 + nRings; k++) {
+				I[k] = rings == Connection.SERIES ? Ib : (Ub - E[k]) / R[k];
+			}
+		}
+	}
+
+	/***
+	 * @return module terminal current of the last solve, A
+	 */
+	public double getTerminalI() {
+		return terminalI;
+	}
+
+	/***
+	 * @return module terminal voltage of the last solve, V
+	 */
+	public double getTerminalV() {
+		return terminalV;
+	}
+
+	/***
+	 * Identical rings: ring voltage for given module voltage
+	 * @param wiring wiring code
+	 * @param V module voltage, V
+	 */
+	static double getRingV(final Geom geom, final String wiring, final double V) {
+		return getRingV(geom, Connection.get(wiring.charAt(0)), Connection.get(wiring.charAt(1)), V);
+	}
+
+	/***
+	 * Identical rings: ring voltage for given module voltage
+	 * @param batteries batteries connection
+	 * @param rings rings connection in a battery
+	 * @param V module voltage, V
+	 */
+	static double getRingV(final Geom geom, final Connection batteries, final Connection rings, final double V) {
+		double v = V;
+		if (rings == Connection.SERIES) {
+			v /= geom.nRingsInBattery;
+		}
+		if (batteries == Connection.SERIES) {
+			v /= geom.nBatteries;
+		}
+		return v;
+	}
+
+	/***
+	 * Identical rings: ring current for given module current
+	 * @param wiring wiring code
+	 * @param I module current, A
+	 */
+	static double getRingI(final Geom geom, final String wiring, final double I) {
+		return getRingI(geom, Connection.get(wiring.charAt(0)), Connection.get(wiring.charAt(1)), I);
+	}
+
+	/***
+	 * Identical rings: ring current for given module current
+	 * @param batteries batteries connection
+	 * @param rings rings connection in a battery
+	 * @param I module current, A
+	 */
+	static double getRingI(final Geom geom, final Connection batteries, final Connection rings, final double I) {
+		double i = I;
+		if (rings == Connection.PARALLEL) {
+			i /= geom.nRingsInBattery;
+		}
+		if (batteries == Connection.PARALLEL) {
+			i /= geom.nBatteries;
+		}
+		return i;
+	}
+
+	/***
+	 * Identical rings: rings count in series (voltage multiplier) of a battery or module
+	 * @param wiring wiring code
+	 * @param type {@link NormalizationType#MODULE} or {@link NormalizationType#BATTERY}, other - 1
+	 */
+	static double getSeriesRings(final Geom geom, final String wiring, final NormalizationType type) {
+		return getRings(geom, wiring, type, Connection.SERIES);
+	}
+
+	/***
+	 * Identical rings: rings count in parallel (current multiplier) of a battery or module
+	 * @param wiring wiring code
+	 * @param type {@link NormalizationType#MODULE} or {@link NormalizationType#BATTERY}, other - 1
+	 */
+	static double getParallelRings(final Geom geom, final String wiring, final NormalizationType type) {
+		return getRings(geom, wiring, type, Connection.PARALLEL);
+	}
+
+	private static double getRings(
+			final Geom geom,
+			final String wiring,
+			final NormalizationType type,
+			final Connection connection) {
+		double n = 1.;
+		if (type == NormalizationType.MODULE || type == NormalizationType.BATTERY) {
+			if (Connection.get(wiring.charAt(1)) == connection) {
+				n *= geom.nRingsInBattery;
+			}
+		}
+		if (type == NormalizationType.MODULE) {
+			if (Connection.get(wiring.charAt(0)) == connection) {
+				n *= geom.nBatteries;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public String toString() {
+		return "Wiring: " + nBatteries + " batter" + (nBatteries == 1 ? "y" : "ies") + " in " + batteries
+				+ ", " + nRings + " ring(s) in " + rings + " in every battery";
+	}
+}
@@ -0,0 +1,221 @@
+package freezer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Threshold events of a transient run<br>
+ * Event spec: <code>quantity:value[:stop]</code>, quantity - "T&lt;n&gt;" (layer n temperature, 'C),
+ * "Qc" (cold side heat flow of the module, W) or "COP"<br>
+ * The first crossing is bracketed by a step, then located by the step re-solving
+ * (Illinois regula falsi on the step size) to the time tolerance
+ */
+class EventDetector {
+	private static final int maxIterations = 50;
+	private static final int quantityQc = -1;
+	private static final int quantityCOP = -2;
+
+	/***
+	 * Single event and its result
+	 */
+	static class Event {
+		private final String spec;
+		/***
+		 * layer index or quantityQc / quantityCOP
+		 */
+		private final int quantity;
+		private final double target;
+		private final boolean stop;
+		/***
+		 * crossing time, s (NaN - not reached)
+		 */
+		private double time = Double.NaN;
+		/***
+		 * values at the beginning and the end of the last step
+		 */
+		private double valueStart;
+		private double value;
+
+		private Event(final String spec, final int quantity, final double target, final boolean stop) {
+			this.spec = spec;
+			this.quantity = quantity;
+			this.target = target;
+			this.stop = stop;
+		}
+
+		public String getSpec() {
+			return spec;
+		}
+		public double getTime() {
+			return time;
+		}
+		public boolean isReached() {
+			return !Double.isNaN(time);
+		}
+	}
+
+	private final StepEngine engine;
+	private final List<Event> events;
+	/***
+	 * time tolerance, s
+	 */
+	private final double tolerance;
+	/***
+	 * Qc multiplier per ring to per module
+	 */
+	private final double mult;
+	private final double[] flows = new double[2];
+	private boolean stopped;
+
+	/***
+	 * @param engine started engine
+	 * @param specs event specs, see {@link EventDetector}
+	 * @param tolerance time tolerance, s
+	 * @throws InputDataException on a wrong spec
+	 */
+	public EventDetector(
+			final StepEngine engine,
+			final Geom geom,
+			final List<String> specs,
+			final double tolerance) throws InputDataException {
+		this.engine = engine;
+		this.tolerance = tolerance;
+		this.mult = geom.nRingsInBattery * geom.nBatteries;
+		this.events = new ArrayList<>();
+		for (String spec : specs) {
+			events.add(parse(spec, engine.layerT_mod.length));
+		}
+		for (Event e : events) {
+			e.value = value(e);
+		}
+	}
+
+	private static Event parse(final String spec, final int Nlayers_mod) throws InputDataException {
+		String[] v = spec.split(":");
+		if (v.length < 2 || v.length > 3 || (v.length == 3 && !v[2].contentEquals("stop"))) {
+			throw new InputDataException("Wrong event \"" + spec + "\", quantity:value[:stop] expected");
+		}
+		int quantity;
+		if (v[0].contentEquals("Qc")) {
+			quantity = quantityQc;
+		} else if (v[0].contentEquals("COP")) {
+			quantity = quantityCOP;
+		} else if (v[0].startsWith("T")) {
+			try {
+				quantity = Integer.parseInt(v[0].substring(1));
+			} catch (NumberFormatException e) {
+				throw new InputDataException("Wrong event quantity \"" + v[0] + "\"");
+			}
+			if (quantity < 0 || quantity >= Nlayers_mod) {
+				throw new InputDataException("Event layer " + quantity + " is out of [0, " + (Nlayers_mod - 1) + "]");
+			}
+		} else {
+			throw new InputDataException("Wrong event quantity \"" + v[0] + "\", T<n>, Qc or COP expected");
+		}
+		try {
+			return new Event(spec, quantity, Double.parseDouble(v[1]), v.length == 3);
+		} catch (NumberFormatException e) {
+			throw new InputDataException("Wrong event value \"" + v[1] + "\"");
+		}
+	}
+
+	/***
+	 * @return event quantity at the current engine state
+	 */
+	private double value(final Event e) {
+		if (e.quantity >= 0) {
+			return engine.layerT_mod[e.quantity];
+		}
+		engine.evalFlowsNow(flows);
+		return e.quantity == quantityQc ? flows[0] * mult : flows[0] / flows[1];
+	}
+
+	/***
+	 * Checks events after a step. Engine saved state ({@link StepEngine#saveState()})
+	 * has to be the beginning of the step
+	 * @param time time at the beginning of the step, s
+	 * @param h step, s
+	 * @param redo reproduces the step from the saved state after re-solving
+	 * @return true if a stop event is reached
+	 */
+	public boolean check(final double time, final double h, final Runnable redo) {
+		for (Event e : events) {
+			e.valueStart = e.value;
+			e.value = value(e);
+		}
+		boolean resolved = false;
+		for (Event e : events) {
+			double g0 = e.valueStart - e.target;
+			double g1 = e.value - e.target;
+			if (e.isReached() || g0 == 0. || g0 * g1 > 0.) {
+				continue;
+			}
+			if (g1 == 0.) {
+				e.time = time + h;
+			} else {
+				e.time = time + locate(e, h, g0, g1);
+				resolved = true;
+			}
+			stopped |= e.stop;
+		}
+		if (resolved) {
+			redo.run();
+		}
+		return stopped;
+	}
+
+	/***
+	 * Illinois regula falsi on the step size
+	 * @return crossing offset from the beginning of the step, s
+	 */
+	private double locate(final Event e, final double h, double ga, double gb) {
+		double a = 0.;
+		double b = h;
+		int side = 0;
+		for (int k = 0; k < maxIterations && b - a > tolerance; k++) {
+			double x = (a * gb - b * ga) / (gb - ga);
+			if (!(x > a && x < b)) {
+				x = (a + b) / 2.;
+			}
+			engine.restoreState();
+			engine.step(x);
+			double gx = value(e) - e.target;
+			if (gx == 0.) {
+				return x;
+			}
+			if (gx * gb > 0.) {
+				b = x;
+				gb = gx;
+				if (side == -1) {
+					ga /= 2.;
+				}
+				side = -1;
+			} else {
+				a = x;
+				ga = gx;
+				if (side == 1) {
+					gb /= 2.;
+				}
+				side = 1;
+			}
+		}
+		return (a + b) / 2.;
+	}
+
+	public List<Event> getEvents() {
+		return events;
+	}
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Events:");
+		for (Event e : events) {
+			sb.append("\n\t").append(e.spec).append(" - ")
+					.append(e.isReached() ? "reached at " + e.time + " s" : "not reached");
+		}
+		return sb.toString();
+	}
+}
@@ -1,6 +1,9 @@
 package freezer;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -17,10 +20,68 @@ import org.apache.poi.ss.usermodel.Sheet;
 public class ExcelData {
 	private final Sheet sheet;
 	private final FormulaEvaluator evaluator;
+	/***
+	 * Named values replacing cell data (name is the one printed to log, e.g. "Touter")
+	 */
+	private final Map<String, Double> overrides;
+	/***
+	 * Optional named values read from cells (nominal values for {@link MonteCarlo}), null - not recorded
+	 */
+	private Map<String, Double> readValues;
+	/***
+	 * Optional cell values and cells existence read so far (key - row and column, see {@link #setRecording()}),
+	 * copies read them instead of the sheet
+	 */
+	private Map<Long, Object> cells;
+	private Map<Long, Boolean> exist;
+	private final String sheetName;
 	
 	public ExcelData(final Sheet sheet, final FormulaEvaluator evaluator) {
+		this(sheet, evaluator, Collections.emptyMap());
+	}
+	
+	public ExcelData(final Sheet sheet, final FormulaEvaluator evaluator, final Map<String, Double> overrides) {
 		this.sheet = sheet;
 		this.evaluator = evaluator;
+		this.overrides = overrides;
+		this.sheetName = sheet != null ? sheet.getSheetName() : "";
+	}
+	
+	/***
+	 * Copy of recorded data
+	 */
+	private ExcelData(final ExcelData source, final Map<String, Double> overrides) {
+		this.sheet = null;
+		this.evaluator = null;
+		this.overrides = overrides;
+		this.sheetName = source.sheetName;
+		this.cells = source.cells;
+		this.exist = source.exist;
+	}
+	
+	/***
+	 * Records cell values read from now on for {@link #copy(Map)}
+	 */
+	public void setRecording() {
+		cells = new HashMap<>();
+		exist = new HashMap<>();
+	}
+	
+	/***
+	 * Copy that reads the values recorded by this one, without the sheet and formula evaluation
+	 * (no POI access, so it can be used by other threads after recording is finished).
+	 * Cells that were not read by this one are errors
+	 * @param overrides named values replacing cell data
+	 */
+	public ExcelData copy(final Map<String, Double> overrides) {
+		if (cells == null) {
+			throw new IllegalStateException("Sheet " + sheetName + " data is not recorded");
+		}
+		return new ExcelData(this, overrides);
+	}
+	
+	private static long getKey(final int row, final int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
 	}
 	
 	public double getDouble (
@@ -29,37 +90,84 @@ public class ExcelData {
 			final String namePrefix, 
 			final String nameSuffix
 			) throws InputDataException {
+		if (!namePrefix.isEmpty() && overrides.containsKey(namePrefix)) {
+			double val = overrides.get(namePrefix);
+			Main.LOG.println(namePrefix + " = " + val + " " + nameSuffix + " (override)");
+			return val;
+		}
+		double val = sheet == null ? getRecordedDouble(row, col) : readDouble(row, col);
+		if (!namePrefix.isEmpty()) {
+			Main.LOG.println(namePrefix + " = " + val + " " + nameSuffix);
+			if (readValues != null) {
+				readValues.put(namePrefix, val);
+			}
+		}
+		return val;
+	}
+	
+	/***
+	 * @return numeric cell value of the sheet, recorded if recording is on
+	 */
+	private double readDouble(final int row, final int col) throws InputDataException {
 		Cell cell = sheet.getRow(row).getCell(col);
 		if (cell == null || cell.getCellType() == CellType.BLANK || cell.getCellType() == CellType.ERROR) {
 			constructError(row, col, "double value expected");
 		}
 		CellValue cv = evaluator.evaluate(cell);
-		if (cv.getCellType() == CellType.NUMERIC) {
-			double val = cell.getNumericCellValue();
-			if (!namePrefix.isEmpty()) {
-				Main.LOG.println(namePrefix + " = " + val + " " + nameSuffix);
-			}
-			return val;
-		} else {
+		if (cv.getCellType() != CellType.NUMERIC) {
 			constructError(row, col, "double value expected");
 		}
-		return 0.;
+		double val = cell.getNumericCellValue();
+		if (cells != null) {
+			cells.put(getKey(row, col), val);
+		}
+		return val;
 	}
+	
+	private double getRecordedDouble(final int row, final int col) throws InputDataException {
+		Object recorded = cells.get(getKey(row, col));
+		if (!(recorded instanceof Double)) {
+			constructError(row, col, "double value expected");
+		}
+		return (Double) recorded;
+	}
+	
+	/***
+	 * @param readValues map to put named values read from cells to
+	 */
+	public void setReadValues(final Map<String, Double> readValues) {
+		this.readValues = readValues;
+	}
+	
 	public String getString (final int row, final int col) throws InputDataException {
+		if (sheet == null) {
+			Object recorded = cells.get(getKey(row, col));
+			if (!(recorded instanceof String)) {
+				constructError(row, col, "string value expected");
+			}
+			return (String) recorded;
+		}
 		Cell cell = sheet.getRow(row).getCell(col);
 		if (cell == null || cell.getCellType() == CellType.ERROR) {
 			constructError(row, col, "string value expected");
 		}
 		CellValue cv = evaluator.evaluate(cell);
+		String val;
 		switch (cv.getCellType()) {
 		case STRING:
-			return cv.getStringValue();
+			val = cv.getStringValue();
+			break;
 		case NUMERIC:
-			return cv.toString();
+			val = cv.toString();
+			break;
 		default:
+			val = "";
 			break;
 		}
-		return "";
+		if (cells != null) {
+			cells.put(getKey(row, col), val);
+		}
+		return val;
 	}
 	
 	public double getDouble (final int row, final int col) throws InputDataException {
@@ -67,11 +175,18 @@ public class ExcelData {
 	}
 	
 	public boolean cellExist (final int row, final int col) {
-		Cell cell = sheet.getRow(row).getCell(col);
-		if (cell == null || cell.getCellType() == CellType.BLANK) {
-			return false;
+		if (sheet == null) {
+			return exist.getOrDefault(getKey(row, col), false);
+		}
+		boolean found = sheet.getRow(row) != null;
+		if (found) {
+			Cell cell = sheet.getRow(row).getCell(col);
+			found = cell != null && cell.getCellType() != CellType.BLANK;
+		}
+		if (exist != null) {
+			exist.put(getKey(row, col), found);
 		}
-		return true;
+		return found;
 	}
 	
 	private void constructError(
@@ -79,7 +194,7 @@ public class ExcelData {
 			final int col, 
 			final String whatsMissing) throws InputDataException {
 		String str = "Error in reading excel input file\n" + 
-				"Sheet " + sheet.getSheetName() +
+				"Sheet " + sheetName +
 				"\nCell [" + row + ", " + col + "] " + whatsMissing;
 		throw new InputDataException(str);
 	}
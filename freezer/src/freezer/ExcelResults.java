@@ -0,0 +1,114 @@
+package freezer;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import freezer.TECalcRes.NormalizationType;
+
+/***
+ * "_RESULT.xlsx" output: "Per meter", "Module", "Battery", "Ring", optional "Summary" and additional tables sheets
+ */
+class ExcelResults implements ResultsWriter {
+	public static final String sheetNameSummary = "Summary";
+
+	private final FileOutputStream outputStream;
+	private final Workbook workbook;
+	private final EnumMap<NormalizationType, ExcelData> sheets = new EnumMap<>(NormalizationType.class);
+	private final ArrayList<Object> vals = new ArrayList<Object>();
+
+	/***
+	 * Opens output file at once, so a locked file fails before calculations
+	 * @param fileOutPath output workbook path
+	 * @throws IOException
+	 */
+	public ExcelResults(final String fileOutPath) throws IOException {
+		outputStream = new FileOutputStream(fileOutPath);
+		workbook = createWorkbookOut();
+		for (NormalizationType type : NormalizationType.values()) {
+			sheets.put(type, new ExcelData(workbook.createSheet(getSheetName(type)), null));
+		}
+	}
+
+	static String getSheetName(final NormalizationType type) {
+		switch (type) {
+		case METER:
+			return "Per meter";
+		case MODULE:
+			return "Module";
+		case BATTERY:
+			return "Battery";
+		case RING:
+			return "Ring";
+		default:
+			return type.toString();
+		}
+	}
+
+	/***
+	 * @return in-memory workbook or streaming one with bounded row window and compressed temp files
+	 */
+	static Workbook createWorkbookOut() {
+		if (Main.STREAM_WINDOW > 0) {
+			SXSSFWorkbook wb = new SXSSFWorkbook(Main.STREAM_WINDOW);
+			wb.setCompressTempFiles(true);
+			Main.LOG.println("Streaming output, row window = " + Main.STREAM_WINDOW);
+			return wb;
+		} else {
+			return new XSSFWorkbook();
+		}
+	}
+
+	@Override
+	public void writeHeader(final NormalizationType type, final ArrayList<Object> vals) {
+		sheets.get(type).setString(0, 0, vals);
+	}
+
+	@Override
+	public void writeRow(final NormalizationType type, final int rowN, final ArrayList<Object> vals) {
+		sheets.get(type).setString(rowN, 0, vals);
+	}
+
+	@Override
+	public void writeSummary(final Map<String, Object> summary) {
+		if (summary.isEmpty()) {
+			return;
+		}
+		ExcelData out = new ExcelData(workbook.createSheet(sheetNameSummary), null);
+		int row = 0;
+		for (Map.Entry<String, Object> e : summary.entrySet()) {
+			vals.clear();
+			vals.add(e.getKey());
+			vals.add(e.getValue());
+			out.setString(row++, 0, vals);
+		}
+	}
+
+	@Override
+	public void writeTable(final String name, final List<ArrayList<Object>> rows) {
+		ExcelData out = new ExcelData(workbook.createSheet(name), null);
+		for (int row = 0; row < rows.size(); row++) {
+			out.setString(row, 0, rows.get(row));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			workbook.write(outputStream);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+			workbook.close();
+			outputStream.close();
+		}
+	}
+}
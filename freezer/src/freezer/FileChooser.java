@@ -0,0 +1,28 @@
+package freezer;
+
+import java.io.File;
+
+import javax.swing.JFileChooser;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/***
+ * Interactive input file selection<br>
+ * <i>note: kept apart from {@link Main} so headless runs never load Swing</i>
+ */
+class FileChooser {
+	static File getFile() {
+		JFileChooser fc = new JFileChooser(".");
+		fc.setFileFilter(new FileNameExtensionFilter("Microsoft Excel (*.xlsx)", "xlsx"));
+		int res = fc.showOpenDialog(null);
+		File fileIn = null;
+		if (res == JFileChooser.APPROVE_OPTION) {
+			fileIn = fc.getSelectedFile();
+			return fileIn;
+		} else {
+			Main.LOG.println("No file to work with");
+			Main.LOG.close();
+			System.exit(0);
+		}
+		return null;
+	}
+}
@@ -6,14 +6,21 @@ package freezer;
  *
  */
 public class Geom {
+	/***
+	 * Nodes count column in layer rows of "Thermoelectric" sheet
+	 */
+	public static final int nodesCol = 10;
 	/***
 	 * Layers count in calculations<br>
 	 * Nlayers = solid layers count + <br>
-	 * + 1 inner fluid + 1 outer wall + 1 outer fluid 
+	 * + 1 inner fluid + 1 outer wall + 1 outer fluid <br>
+	 * Every solid layer is split into sub-layers (nodes) of equal thermal resistance, 
+	 * count from layer row column {@link #nodesCol} or {@link Main#MESH} if blank.
+	 * Semiconductor layer is never split, so solid layers count is the nodes count
 	 */
 	public final int Nlayers;
 	/***
-	 * Semiconductor layer number
+	 * Semiconductor layer number (node number with mesh)
 	 */
 	public final int Xlayer;
 	/***
@@ -30,6 +37,12 @@ public class Geom {
 	public final double[] layerRho;
 	public final double[] layerRin;
 	public final double[] layerThickness;
+	/***
+	 * Physical thickness of conductor layers (next to semiconductor), m<br>
+	 * <i> Not the mesh node thickness, used for electrical resistance</i>
+	 */
+	public final double innerConductorThickness;
+	public final double outerConductorThickness;
 	/**
 	 * Layer CpM mod for calculations, J/kg <br>
 	 * <code>
@@ -189,7 +202,33 @@ public class Geom {
 	public Geom(final ExcelData env) throws InputDataException{
 		Main.LOG.println("Geometry");
 
-		Nlayers = (int) env.getDouble(0, 1, "Nlayers", "") + 3;
+		int nSolid = (int) env.getDouble(0, 1, "Nlayers", "");
+		int xPhysical = (int) env.getDouble(1, 1, "Xlayer", "");
+		Xvolume_factor = env.getDouble(3, 1, "Xvolume_factor", "");
+		RhColdSide = env.getDouble(0, 6, "Rcold", "K*m/W");
+		RhHotSide = env.getDouble(1, 6, "Rhot", "K*m/W");
+		double rin = env.getDouble(2, 1, "R[0]", "m");
+		
+		ringThickness = env.getDouble(2, 6, "Ring thickness", "m");
+
+		int[] nodes = new int[nSolid + 1];
+		int nNodes = 0;
+		int xNode = 1;
+		for (int i = 1; i <= nSolid; i++) {
+			nodes[i] = env.cellExist(7 + i - 1, nodesCol) ? (int) env.getDouble(7 + i - 1, nodesCol) : Main.MESH;
+			if (i == xPhysical || nodes[i] < 1) {
+				nodes[i] = 1;
+			}
+			nNodes += nodes[i];
+			if (i < xPhysical) {
+				xNode += nodes[i];
+			}
+		}
+		Nlayers = nNodes + 3;
+		Xlayer = xNode;
+		if (nNodes > nSolid) {
+			Main.LOG.println("Mesh: " + nSolid + " layers, " + nNodes + " nodes");
+		}
 		layerRin = new double[Nlayers];
 		layerThickness = new double[Nlayers];
 		layerLambda = new double[Nlayers];
@@ -198,26 +237,37 @@ public class Geom {
 		layerCpM_mod = new double[Nlayers];
 		layerRh = new double[Nlayers];
 		tempCpM = new double[Nlayers];
-		
-		Xlayer = (int) env.getDouble(1, 1, "Xlayer", "");
-		Xvolume_factor = env.getDouble(3, 1, "Xvolume_factor", "");
-		RhColdSide = env.getDouble(0, 6, "Rcold", "K*m/W");
-		RhHotSide = env.getDouble(1, 6, "Rhot", "K*m/W");
-		layerRin[1] = env.getDouble(2, 1, "R[0]", "m");
-		
-		ringThickness = env.getDouble(2, 6, "Ring thickness", "m");
+		layerRin[1] = rin;
 
-		for (int i = 1; i < Nlayers - 2; i++) {
-			layerThickness[i] = env.getDouble(7 + i - 1, 1);
-			layerRin[i+1] = layerRin[i] + layerThickness[i];
-			layerLambda[i] = env.getDouble(7 + i - 1, 2);
-			layerCp[i] = env.getDouble(7 + i - 1, 3);
-			layerRho[i] = env.getDouble(7 + i - 1, 4);
-			double area = Math.PI * (layerRin[i+1] * layerRin[i+1] - layerRin[i] * layerRin[i]);
-			tempCpM[i] = area * layerRho[i] * layerCp[i] * ringThickness;
-			layerRh[i] = 1. / 2. / Math.PI / layerLambda[i] * Math.log(layerRin[i + 1] / layerRin[i]) / ringThickness;
-			
+		double innerConductorThickness = 0.;
+		double outerConductorThickness = 0.;
+		int j = 1;
+		for (int i = 1; i <= nSolid; i++) {
+			double thickness = env.getDouble(7 + i - 1, 1);
+			double lambda = env.getDouble(7 + i - 1, 2);
+			double cp = env.getDouble(7 + i - 1, 3);
+			double rho = env.getDouble(7 + i - 1, 4);
+			if (i == xPhysical - 1) {
+				innerConductorThickness = thickness;
+			} else if (i == xPhysical + 1) {
+				outerConductorThickness = thickness;
+			}
+			double rout = rin + thickness;
+			// log-uniform radii: equal thermal resistance of sub-layers
+			for (int k = 1; k <= nodes[i]; k++, j++) {
+				layerRin[j + 1] = k == nodes[i] ? rout : rin * Math.pow(rout / rin, (double) k / nodes[i]);
+				layerThickness[j] = layerRin[j + 1] - layerRin[j];
+				layerLambda[j] = lambda;
+				layerCp[j] = cp;
+				layerRho[j] = rho;
+				double area = Math.PI * (layerRin[j+1] * layerRin[j+1] - layerRin[j] * layerRin[j]);
+				tempCpM[j] = area * layerRho[j] * layerCp[j] * ringThickness;
+				layerRh[j] = 1. / 2. / Math.PI / layerLambda[j] * Math.log(layerRin[j + 1] / layerRin[j]) / ringThickness;
+			}
+			rin = rout;
 		}
+		this.innerConductorThickness = innerConductorThickness;
+		this.outerConductorThickness = outerConductorThickness;
 		
 		layerRh[Xlayer - 1] += RhHotSide / ringThickness;
 		layerRh[Xlayer + 1] += RhColdSide / ringThickness;
@@ -238,7 +288,7 @@ public class Geom {
 		Main.LOG.println("Outer conductor = " + outerConductor);
 		
 		ReMultInner = env.getDouble(9, 6, "Inner Re multipyer", "");
-		ReMultOuter = env.getDouble(10, 6, "Outer junction Re per segment", "");
+		ReMultOuter = env.getDouble(10, 6, "Outer Re multipyer", "");
 		
 		ReInJunction = env.getDouble(11, 6, "Inner junction Re per segment", "Ohm");
 		ReOutJunction = env.getDouble(12, 6, "Outer junction Re per segment", "Ohm");
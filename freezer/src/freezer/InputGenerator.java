@@ -0,0 +1,197 @@
+package freezer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/***
+ * Synthetic input workbook in the exact cell layout read by {@link Geom}, {@link TEProps} and {@link Conditions}
+ * (for benchmarks and bug reports without real data)<br>
+ * Solid layers are symmetric around semiconductor: copper conductors, then ceramics / steel in turn,
+ * TE properties table is smooth and evenly spaced over [-55, 155] 'C
+ */
+class InputGenerator {
+	/***
+	 * Max solid layers count: layer rows end before TE properties table
+	 */
+	static final int maxLayers = 35;
+	private static final int layersFirstRow = 7;
+	private static final int tableFirstRow = 42;
+
+	private final int layers;
+	private final int tableSize;
+	private final double timeEnd;
+	private final double timeStep;
+	private final int nToPrint;
+	/***
+	 * current, A
+	 */
+	private double I = 4.;
+
+	/***
+	 * @param layers solid layers count, odd, 3..{@link #maxLayers} (semiconductor is the middle one)
+	 * @param tableSize TE properties table size, &gt;= 2
+	 * @param timeEnd s
+	 * @param timeStep s
+	 * @param nToPrint print every nToPrint step
+	 */
+	public InputGenerator(
+			final int layers,
+			final int tableSize,
+			final double timeEnd,
+			final double timeStep,
+			final int nToPrint) throws InputDataException {
+		if (layers < 3 || layers > maxLayers || layers % 2 == 0) {
+			throw new InputDataException("Odd layers count in [3, " + maxLayers + "] expected: " + layers);
+		}
+		if (tableSize < 2) {
+			throw new InputDataException("TE properties table size >= 2 expected: " + tableSize);
+		}
+		if (!(timeEnd > 0.) || !(timeStep > 0.) || nToPrint < 1) {
+			throw new InputDataException("Positive timeEnd, timeStep and nToPrint expected");
+		}
+		this.layers = layers;
+		this.tableSize = tableSize;
+		this.timeEnd = timeEnd;
+		this.timeStep = timeStep;
+		this.nToPrint = nToPrint;
+	}
+
+	/***
+	 * @param spec <code>layers:tableSize:timeEnd:timeStep:nToPrint</code>, e.g. <code>7:22:1000:0.1:10</code>
+	 */
+	static InputGenerator parse(final String spec) throws InputDataException {
+		String[] v = spec.split(":");
+		if (v.length != 5) {
+			throw new InputDataException("Input spec layers:tableSize:timeEnd:timeStep:nToPrint expected: " + spec);
+		}
+		try {
+			return new InputGenerator(Integer.parseInt(v[0]), Integer.parseInt(v[1]),
+					Double.parseDouble(v[2]), Double.parseDouble(v[3]), Integer.parseInt(v[4]));
+		} catch (NumberFormatException e) {
+			throw new InputDataException("Wrong input spec \"" + spec + "\": " + e.getMessage());
+		}
+	}
+
+	public InputGenerator setI(final double I) {
+		this.I = I;
+		return this;
+	}
+
+	/***
+	 * @return steps count of a fixed step run
+	 */
+	public long getSteps() {
+		return (long) Math.ceil(timeEnd / timeStep);
+	}
+
+	/***
+	 * @return "Thermoelectric" and "Conditions" sheets workbook
+	 */
+	public XSSFWorkbook create() {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet te = wb.createSheet(Main.sheetNameThermoelectric);
+		for (int r = 0; r < tableFirstRow + tableSize + 1; r++) {
+			te.createRow(r);
+		}
+		int xLayer = (layers + 1) / 2;
+		set(te, 0, 1, layers);
+		set(te, 1, 1, xLayer);
+		set(te, 2, 1, 0.01);
+		set(te, 3, 1, 0.8);
+		set(te, 0, 6, 1e-4);
+		set(te, 1, 6, 1e-4);
+		set(te, 2, 6, 0.003);
+		set(te, 0, 9, 20.);
+		set(te, 1, 9, 10.);
+		set(te, 2, 9, 2.);
+		te.getRow(7).createCell(6).setCellValue("Cu");
+		te.getRow(8).createCell(6).setCellValue("Cu");
+		set(te, 9, 6, 1.);
+		set(te, 10, 6, 1.);
+		set(te, 11, 6, 1e-4);
+		set(te, 12, 6, 1e-4);
+		for (int i = 1; i <= layers; i++) {
+			double[] layer = getLayer(Math.abs(i - xLayer));
+			for (int k = 0; k < layer.length; k++) {
+				set(te, layersFirstRow + i - 1, 1 + k, layer[k]);
+			}
+		}
+		for (int i = 0; i < tableSize; i++) {
+			double T = -55. + 210. * i / (tableSize - 1);
+			int r = tableFirstRow + i;
+			set(te, r, 1, T);
+			set(te, r, 2, T);
+			set(te, r, 3, 2.0e-4 + 2e-7 * T);
+			set(te, r, 4, 2.1e-4 + 1.5e-7 * T);
+			set(te, r, 5, 1.0e5 - 150. * T);
+			set(te, r, 6, 0.9e5 - 120. * T);
+			set(te, r, 7, 1.5 + 0.002 * T);
+			set(te, r, 8, 1.4 + 0.0025 * T);
+		}
+
+		Sheet c = wb.createSheet(Main.sheetNameConditions);
+		for (int r = 0; r < 30; r++) {
+			c.createRow(r);
+		}
+		set(c, 2, 2, 0.);
+		set(c, 3, 2, 20.);
+		set(c, 4, 2, 4180.);
+		set(c, 5, 2, 1000.);
+		set(c, 6, 2, Math.PI * 1e-4);
+		set(c, 7, 2, 1000.);
+		set(c, 11, 2, 0.);
+		set(c, 12, 2, 20.);
+		set(c, 13, 2, 4180.);
+		set(c, 14, 2, 2000.);
+		set(c, 15, 2, 0.);
+		set(c, 20, 2, I);
+		set(c, 21, 2, 0.);
+		set(c, 22, 2, 20.);
+		set(c, 25, 2, timeEnd);
+		set(c, 26, 2, timeStep);
+		set(c, 27, 2, nToPrint);
+		return wb;
+	}
+
+	/***
+	 * Writes {@link #create()} workbook
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(final File file) throws IOException {
+		try (XSSFWorkbook wb = create(); FileOutputStream out = new FileOutputStream(file)) {
+			wb.write(out);
+		}
+	}
+
+	/***
+	 * @param d distance from semiconductor layer
+	 * @return thickness, m, lambda, W/m/K, Cp, J/kg/K, rho, kg/m3
+	 */
+	private static double[] getLayer(final int d) {
+		if (d == 0) {
+			return new double[] {0.002, 1.5, 200., 7700.};
+		} else if (d == 1) {
+			return new double[] {0.0003, 390., 385., 8900.};
+		} else if (d % 2 == 0) {
+			return new double[] {0.0005, 20., 800., 3900.};
+		} else {
+			return new double[] {0.001, 16., 500., 7900.};
+		}
+	}
+
+	private static void set(final Sheet sheet, final int row, final int col, final double val) {
+		Row r = sheet.getRow(row);
+		r.createCell(col).setCellValue(val);
+	}
+
+	@Override
+	public String toString() {
+		return layers + ":" + tableSize + ":" + timeEnd + ":" + timeStep + ":" + nToPrint;
+	}
+}
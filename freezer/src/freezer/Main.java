@@ -2,18 +2,15 @@ package freezer;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-
-import javax.swing.JFileChooser;
-import javax.swing.filechooser.FileNameExtensionFilter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import freezer.TECalcRes.NormalizationType;
@@ -21,53 +18,187 @@ import freezer.TECalcRes.NormalizationType;
 public class Main {
 	public static boolean DEBUG;
 	public static MathLogger LOG;
+	/***
+	 * Streaming output (SXSSF) row window, rows kept in memory per sheet<br>
+	 * 0 - ordinary in-memory workbook
+	 */
+	public static int STREAM_WINDOW;
+	public static final int defaultStreamWindow = 100;
 	
 	public static final String sheetNameThermoelectric = "Thermoelectric";
 	public static final String sheetNameConditions = "Conditions";
+	public static final String resultSuffix = "_RESULT.xlsx";
+	/***
+	 * Suffixes of every mode output written next to the input, such files are not inputs
+	 */
+	static final List<String> outputSuffixes = List.of(resultSuffix, "_RESULT" + BinaryResults.fileSuffix,
+			Checkpoint.fileSuffix, SweepRunner.fileSuffix, Optimizer.fileSuffix, MonteCarlo.fileSuffix);
+	
+	/***
+	 * Worker threads for batch mode, 0 - available processors
+	 */
+	public static int THREADS;
+	/***
+	 * Parameter sweep mode: null - off, "list" - every row of "Sweep" sheet is a case,
+	 * "grid" - every combination of "Sweep" sheet columns is a case
+	 */
+	public static String SWEEP;
+	/***
+	 * Inner fluid target temperature for time-to-target, 'C (NaN - not used)
+	 */
+	public static double TARGET = Double.NaN;
+	/***
+	 * Properties cache junction temperatures rounding, K (0 - no cache)
+	 */
+	public static double CACHE_TOLERANCE;
+	/***
+	 * Properties cache max entries count
+	 */
+	public static int CACHE_SIZE = 4096;
+	/***
+	 * Adaptive time step local error tolerance, K (0 - fixed step)
+	 */
+	public static double ADAPTIVE_TOL;
+	/***
+	 * Adaptive time step bounds, s (NaN - Conditions time step and end time)
+	 */
+	public static double DT_MIN = Double.NaN;
+	public static double DT_MAX = Double.NaN;
+	/***
+	 * Time scheme: "euler" (implicit Euler) or "bdf2" (second order BDF)
+	 */
+	public static final String SCHEME_EULER = "euler";
+	public static final String SCHEME_BDF2 = "bdf2";
+	public static String SCHEME = SCHEME_EULER;
+	/***
+	 * Current and junction heat flows iterated to the end of step temperatures, see {@link StepEngine}
+	 */
+	public static boolean IMPLICIT;
+	/***
+	 * Nodes count for every solid layer with blank nodes cell, see {@link Geom#nodesCol}
+	 */
+	public static int MESH = 1;
+	/***
+	 * Axial model blocks count (inner fluid flows through the rings), 0 - single ring model, see {@link AxialChain}
+	 */
+	public static int AXIAL;
+	/***
+	 * Module wiring code (batteries, rings: "s" - series, "p" - parallel), see {@link ElectricalNetwork}
+	 */
+	public static String WIRING = ElectricalNetwork.defaultWiring;
+	/***
+	 * Steady state mode: null - transient only, "only" - steady state row only,
+	 * "start" - transient from steady state
+	 */
+	public static final String STEADY_ONLY = "only";
+	public static final String STEADY_START = "start";
+	public static String STEADY;
+	/***
+	 * Early termination thresholds: max temperature rate, K/s (0 - off),
+	 * stored heat rate, W (NaN - not checked), window, s (NaN - print interval)
+	 */
+	public static double SETTLE_RATE;
+	public static double SETTLE_RESIDUAL = Double.NaN;
+	public static double SETTLE_WINDOW = Double.NaN;
+	/***
+	 * Threshold event specs, see {@link EventDetector}
+	 */
+	public static final ArrayList<String> EVENTS = new ArrayList<>();
+	/***
+	 * Events time tolerance, s
+	 */
+	public static double EVENT_TOL = 1e-4;
+	/***
+	 * Binary columnar output instead of xlsx, see {@link BinaryResults}
+	 */
+	public static boolean BINARY;
+	/***
+	 * Paths are binary results to convert to xlsx
+	 */
+	public static boolean CONVERT;
+	/***
+	 * Csv output significant digits (0 - no csv output), see {@link CsvResults}
+	 */
+	public static int CSV_DIGITS;
+	/***
+	 * Log level, see {@link MathLogger}
+	 */
+	public static MathLogger.Level LOG_LEVEL = MathLogger.Level.TRACE;
+	static final int defaultCsvDigits = 12;
+	/***
+	 * Synthetic input spec to write to the paths instead of calculations, see {@link InputGenerator#parse(String)}
+	 */
+	public static String GENERATE;
+	/***
+	 * Per phase timing to "Performance" sheet and log, see {@link PhaseProfiler}
+	 */
+	public static boolean PROFILE;
+	/***
+	 * Operating current / voltage optimization spec (null - off), see {@link Optimizer}
+	 */
+	public static String OPTIMIZE;
+	/***
+	 * Optimization bracket width to stop, fraction of the range
+	 */
+	public static double OPTIMIZE_TOL = 1e-3;
+	/***
+	 * Optimization transient length, s (NaN - Tend from input)
+	 */
+	public static double OPTIMIZE_TIME = Double.NaN;
+	/***
+	 * Monte Carlo samples count (0 - off) and random seed, see {@link MonteCarlo}
+	 */
+	public static int MONTE_CARLO;
+	public static long MONTE_CARLO_SEED = 1L;
+	/***
+	 * Wall clock interval between fixed step transient checkpoints, s (0 - off), see {@link Checkpoint}
+	 */
+	public static double CHECKPOINT;
+	static final double defaultCheckpointInterval = 60.;
+	/***
+	 * Resume transient from the checkpoint next to the input
+	 */
+	public static boolean RESUME;
 	
+	private final File fileIn;
 	private TEProps teProps;
 	private Geom geom;
 	private Conditions cond;
 
 	
 	private final ArrayList<Object> vals = new ArrayList<Object>();
+	/***
+	 * single values of the run for "Summary" sheet (settling time etc.)
+	 */
+	private final LinkedHashMap<String, Object> summary = new LinkedHashMap<>();
+	private final PhaseProfiler profiler;
+	/***
+	 * checkpoint to resume from or null, results are appended to
+	 */
+	private Checkpoint resumeFrom;
 
-	private File getFile() {
-		JFileChooser fc = new JFileChooser(".");
-		fc.setFileFilter(new FileNameExtensionFilter("Microsoft Excel (*.xlsx)", "xlsx"));
-		int res = fc.showOpenDialog(null);
-		File fileIn = null;
-		if (res == JFileChooser.APPROVE_OPTION) {
-			fileIn = fc.getSelectedFile();
-			return fileIn;
-		} else {
-			LOG.println("No file to work with");
-			System.exit(0);
-		}
-		return null;
+	public Main(final File fileIn) {
+		this.fileIn = fileIn;
+		this.profiler = PROFILE ? new PhaseProfiler() : PhaseProfiler.OFF;
 	}
 	
-	
-	
-	public Main() {
-
-		File fileIn = getFile();
-        
-        String fileOutPath = fileIn.getAbsolutePath().substring(0, fileIn.getAbsolutePath().length() - 4) + "_RESULT.xlsx";
+	/***
+	 * Reads input workbook, calculates and writes "_RESULT.xlsx" next to it
+	 * @throws IOException
+	 * @throws InputDataException
+	 */
+	void run() throws IOException, InputDataException {
+        String fileOutPath = getOutPath(fileIn, BINARY ? "_RESULT" + BinaryResults.fileSuffix 
+        		: CSV_DIGITS > 0 ? "_RESULT" : resultSuffix);
+		long runStart = System.nanoTime();
+		long t = profiler.start();
 		try( 
 				FileInputStream file = new FileInputStream(fileIn); 
-				FileOutputStream outputStream = new FileOutputStream(fileOutPath);
-				Workbook workbookIn = new XSSFWorkbook(file);
-				XSSFWorkbook workbookOut = new XSSFWorkbook()) {
+				Workbook workbookIn = new XSSFWorkbook(file)) {
 			
 			LOG.println("File \"" + fileIn.getAbsolutePath() + "\" is found");
 			LOG.println("Workbook is found");
 			
-	        XSSFSheet sheetOutMeter = workbookOut.createSheet("Per meter");
-	        XSSFSheet sheetOutModule = workbookOut.createSheet("Module");
-	        XSSFSheet sheetOutBattery = workbookOut.createSheet("Battery");
-	        XSSFSheet sheetOutRing = workbookOut.createSheet("Ring");
-			
 			Sheet sheet = workbookIn.getSheet(sheetNameThermoelectric);
 			if (sheet == null) {
 				throw new InputDataException("Sheet \"" + sheetNameThermoelectric + "\" not found");
@@ -92,171 +223,528 @@ public class Main {
 			ExcelData conditionsIn = new ExcelData(sheet, evaluator);
 			cond = new Conditions(conditionsIn);
 			geom.updateMargins(cond);
-			
+			profiler.stop(PhaseProfiler.Phase.PARSE, t);
 			
 			LOG.println("\n====calculations====");
  
-			ExcelData resultsEnvMeter = new ExcelData(sheetOutMeter, evaluator);
-			ExcelData resultsModule = new ExcelData(sheetOutModule, evaluator);
-			ExcelData resultsBattery = new ExcelData(sheetOutBattery, evaluator);
-			ExcelData resultsRing = new ExcelData(sheetOutRing, evaluator);
-			
-			long nano = System.nanoTime();
-			calcDynamic(resultsEnvMeter, resultsModule, resultsBattery, resultsRing);
-			LOG.println("calcDynamic finished in " + ((System.nanoTime() - nano)/1_000_000L) + " ms");
-			
-			workbookOut.write(outputStream);
-			
-		} catch (FileNotFoundException e) {
-			LOG.println(e.getMessage());
-		} catch (IOException e) {
-			LOG.println(e.getMessage());
-		} catch(InputDataException e) {
-			LOG.println(e.getMessage());
-		}finally {
-
+			String checkpointPath = getOutPath(fileIn, Checkpoint.fileSuffix);
+			boolean checkpointed = (CHECKPOINT > 0. || RESUME) && isCheckpointed();
+			if (RESUME && !checkpointed) {
+				throw new InputDataException("Resume needs fixed step transient with -csv or -binary results "
+						+ "(xlsx is written at close only)");
+			} else if (CHECKPOINT > 0. && !checkpointed) {
+				LOG.println("Checkpoints are used by fixed step transient with -csv or -binary results only");
+			}
+			if (RESUME) {
+				resumeFrom = Checkpoint.read(checkpointPath);
+			}
+			long closeStart = 0L;
+			try (ResultsWriter results = BINARY
+					? resumeFrom != null 
+						? new BinaryResults(new File(fileOutPath), resumeFrom.position)
+						: new BinaryResults(new File(fileOutPath), getRowsCapacity(cond))
+					: CSV_DIGITS > 0 
+						? resumeFrom != null 
+							? new CsvResults(fileOutPath, CSV_DIGITS, resumeFrom.position)
+							: new CsvResults(fileOutPath, CSV_DIGITS)
+						: new ExcelResults(fileOutPath)) {
+				long nano = System.nanoTime();
+				calcDynamic(results);
+				LOG.println("calcDynamic finished in " + ((System.nanoTime() - nano)/1_000_000L) + " ms");
+				results.writeSummary(summary);
+				if (profiler.isEnabled()) {
+					// serialization is not finished yet, it goes to the log only
+					results.writeTable(PhaseProfiler.sheetName, profiler.getTable(System.nanoTime() - runStart));
+				}
+				closeStart = profiler.start();
+			}
+			profiler.stop(PhaseProfiler.Phase.SERIALIZE, closeStart);
+			if (checkpointed) {
+				Checkpoint.delete(checkpointPath);
+			}
+		}
+		if (profiler.isEnabled()) {
+			LOG.println(profiler.toString(System.nanoTime() - runStart));
 		}
-
+	}
+	
+	/***
+	 * Calculates one input workbook in the selected mode
+	 * @param fileIn
+	 * @throws IOException
+	 * @throws InputDataException
+	 */
+	static void process(final File fileIn) throws IOException, InputDataException {
+		if (CONVERT) {
+			BinaryResults.convert(fileIn);
+		} else if (MONTE_CARLO > 0) {
+			new MonteCarlo(fileIn, MONTE_CARLO, MONTE_CARLO_SEED, THREADS, TARGET, STEADY != null).run();
+		} else if (OPTIMIZE != null) {
+			new Optimizer(fileIn, OPTIMIZE, THREADS, OPTIMIZE_TOL, OPTIMIZE_TIME).run();
+		} else if (SWEEP != null) {
+			new SweepRunner(fileIn, SWEEP.contentEquals("grid"), THREADS, TARGET).run();
+		} else {
+			new Main(fileIn).run();
+		}
+	}
+	
+	/***
+	 * @return true if the run is a fixed step transient of one ring with appendable (csv or binary) results,
+	 * the only one with checkpoints
+	 */
+	static boolean isCheckpointed() {
+		return AXIAL == 0 && ADAPTIVE_TOL <= 0. && !STEADY_ONLY.equals(STEADY) && (BINARY || CSV_DIGITS > 0);
+	}
+	
+	/***
+	 * @return output file path next to the input one
+	 */
+	static String getOutPath(final File fileIn, final String suffix) {
+		return fileIn.getAbsolutePath().substring(0, fileIn.getAbsolutePath().length() - 4) + suffix;
+	}
+	
+	/***
+	 * @return max printed rows count of a transient run (header excluded)
+	 */
+	static long getRowsCapacity(final Conditions cond) {
+		long steps = (long) Math.ceil(cond.timeEnd / cond.timeStep) + 1;
+		return steps / Math.max(1, cond.nToPrint) + 3;
 	}
 	
 	void excelPrintHeaders(
-			final ExcelData resultsMeter, 
-			final ExcelData resultsModule, 
-			final ExcelData resultsBattery,
-			final ExcelData resultsRing,
+			final ResultsWriter results,
 			final TECalcRes cr,
-			final ThermalState ts) throws InputDataException{
+			final ThermalState ts) throws IOException {
 		ArrayList<Object> headers = new ArrayList<Object>();
 		headers.add("time, s");
 		headers.addAll(cr.getHeaderArray(NormalizationType.METER));
 		headers.addAll(ts.getHeaderArray());
-		resultsMeter.setString(0, 0, headers);
+		results.writeHeader(NormalizationType.METER, headers);
 		
 		headers.clear();
 		headers.add("time, s");
 		headers.addAll(cr.getHeaderArray(NormalizationType.MODULE));
-		resultsModule.setString(0, 0, headers);
+		results.writeHeader(NormalizationType.MODULE, headers);
 		
 		headers.clear();
 		headers.add("time, s");
 		headers.addAll(cr.getHeaderArray(NormalizationType.BATTERY));
-		resultsBattery.setString(0, 0, headers);
+		results.writeHeader(NormalizationType.BATTERY, headers);
 		
 		headers.clear();
 		headers.add("time, s");
 		headers.addAll(cr.getHeaderArray(NormalizationType.RING));
-		resultsRing.setString(0, 0, headers);
+		results.writeHeader(NormalizationType.RING, headers);
 		
-		Main.LOG.printlnLog("time,s  " + cr.getHeader() + ts.getHeader());
+		Main.LOG.printlnLog(() -> "time,s  " + cr.getHeader() + ts.getHeader());
 	}
 
 	void excelPrintString(
-			final ExcelData resultsMeter, 
-			final ExcelData resultsModule, 
-			final ExcelData resultsBattery,
-			final ExcelData resultsRing,
+			final ResultsWriter results,
 			final TECalcRes cr,
 			final ThermalState ts,
 			final double time,
-			final int rowN) throws InputDataException {
-		Main.LOG.printLog(
+			final int rowN) throws IOException {
+		long t = profiler.start();
+		Main.LOG.printlnLog(() -> 
 				String.format("%8.2f",  time)
 				+ cr 
-				+ ts);
+				+ ts
+				+ " | " + cr.pc.propsVals.getMessage());
 		vals.clear();
 		vals.add(time);
 		vals.addAll(cr.toStringArray(NormalizationType.METER));
 		vals.addAll(ts.toStringArray());
-		Main.LOG.printlnLog(" | " + cr.pc.propsVals.getMessage());
 		vals.add(cr.pc.propsVals.getMessage());
 		
-		resultsMeter.setString(rowN, 0, vals);
+		results.writeRow(NormalizationType.METER, rowN, vals);
 		vals.clear();
 		vals.add(time);
 		vals.addAll(cr.toStringArray(NormalizationType.MODULE));
-		resultsModule.setString(rowN, 0, vals);
+		results.writeRow(NormalizationType.MODULE, rowN, vals);
 		
 		vals.clear();
 		vals.add(time);
 		vals.addAll(cr.toStringArray(NormalizationType.BATTERY));
-		resultsBattery.setString(rowN, 0, vals);
+		results.writeRow(NormalizationType.BATTERY, rowN, vals);
 		
 		vals.clear();
 		vals.add(time);
 		vals.addAll(cr.toStringArray(NormalizationType.RING));
-		resultsRing.setString(rowN, 0, vals);
+		results.writeRow(NormalizationType.RING, rowN, vals);
+		profiler.stop(PhaseProfiler.Phase.FORMAT, t);
 	}
 	
-	void calcDynamic(
-			final ExcelData resultsMeter, 
-			final ExcelData resultsModule, 
-			final ExcelData resultsBattery,
-			final ExcelData resultsRing) throws InputDataException{
-		final double I = getI(null);
-		
-		final int Nlayers_mod = geom.Nlayers - 1; 
-		final int xLayerInner = geom.Xlayer;
-		final int xLayerOuter = geom.Xlayer + 1;
-		final double[] layerT_mod = new double[Nlayers_mod];
-		
-		layerT_mod[0] = cond.Tinner;
-		for (int i = 1; i < Nlayers_mod; i++) {
-			layerT_mod[i] = cond.Ttem_init;
+	void calcDynamic(final ResultsWriter results) throws IOException, InputDataException {
+		if (AXIAL > 0) {
+			calcAxial(results);
+			return;
+		}
+		StepEngine engine = new StepEngine(geom, cond, teProps);
+		engine.setProfiler(profiler);
+		if (resumeFrom != null) {
+			resumeFrom.restore(engine, cond);
+		} else if (STEADY != null) {
+			SteadySolver steady = new SteadySolver(engine, geom, cond);
+			steady.solve();
+			LOG.println(steady.toString());
+			if (STEADY.contentEquals(STEADY_ONLY)) {
+				TECalcRes cr = engine.getCalcRes();
+				ThermalState ts = engine.getThermalState();
+				excelPrintHeaders(results, cr, ts);
+				excelPrintString(results, cr, ts, 0., 1);
+				return;
+			}
 		}
+		if (resumeFrom == null) {
+			engine.start();
+		}
+		SettleMonitor monitor = createSettleMonitor(cond);
+		EventDetector events = createEventDetector(engine, geom);
 		
-		TECalcRes cr = new TECalcRes(
-				layerT_mod[xLayerInner], layerT_mod[xLayerOuter], 
-				I, geom, teProps);
-		ThermalState ts = new ThermalState(geom, cond, layerT_mod, cr, 1./10000.);
+		TECalcRes cr = engine.getCalcRes();
+		ThermalState ts = engine.getThermalState();
+
+		int j = 2;
+		if (resumeFrom != null) {
+			j = resumeFrom.row;
+		} else {
+			excelPrintHeaders(results, cr, ts);
+			excelPrintString(results, cr, ts, 0., 1);
+		}
+		if (ADAPTIVE_TOL > 0.) {
+			double printInterval = cond.timeStep * cond.nToPrint;
+			AdaptiveStepper stepper = new AdaptiveStepper(engine, ADAPTIVE_TOL,
+					Double.isNaN(DT_MIN) ? cond.timeStep : DT_MIN,
+					Double.isNaN(DT_MAX) ? cond.timeEnd : DT_MAX);
+			stepper.setEvents(events);
+			double[] layerT = new double[engine.layerT_mod.length];
+			double printTime = Math.min(printInterval, cond.timeEnd);
+			double printed = 0.;
+			boolean stop = false;
+			for (int k = 1; stepper.getTime() < cond.timeEnd && !stop; ) {
+				stop = stepper.step(cond.timeEnd);
+				stop |= monitor != null && monitor.update(stepper.getTime(), engine);
+				// rows between steps are interpolated, a stopped run ends with its last step row
+				while (printTime <= stepper.getTime() || (stop && printed < stepper.getTime())) {
+					double time = Math.min(printTime, stepper.getTime());
+					stepper.interpolate(time, layerT);
+					excelPrintString(results, engine.getCalcRes(layerT), engine.getThermalState(layerT), time, j);
+					j++;
+					printed = time;
+					if (time == printTime) {
+						k++;
+						printTime = printTime < cond.timeEnd ? Math.min(k * printInterval, cond.timeEnd) : Double.POSITIVE_INFINITY;
+					}
+				}
+			}
+			LOG.println(stepper.toString());
+		} else {
+			String checkpointPath = getOutPath(fileIn, Checkpoint.fileSuffix);
+			long checkpointInterval = (long) (CHECKPOINT * 1e9);
+			long nextCheckpoint = System.nanoTime() + checkpointInterval;
+			long i = resumeFrom != null ? resumeFrom.step : 0L;
+			for (double time = resumeFrom != null ? resumeFrom.time : 0.; time < cond.timeEnd; time += cond.timeStep, i++) {
+				boolean stop = false;
+				if (events != null) {
+					engine.saveState();
+					engine.step(cond.timeStep);
+					stop = events.check(time, cond.timeStep, () -> {
+						engine.restoreState();
+						engine.step(cond.timeStep);
+					});
+				} else {
+					engine.step(cond.timeStep);
+				}
+				
+				stop |= monitor != null && monitor.update(time + cond.timeStep, engine);
+				if (i % cond.nToPrint == 0 || stop) {
+					excelPrintString(results, 
+							engine.getCalcRes(), engine.getThermalState(), time, j);
+					j++;
+					if (checkpointInterval > 0L && !stop && System.nanoTime() >= nextCheckpoint) {
+						Checkpoint.write(checkpointPath, i + 1, time + cond.timeStep, j, results.sync(), cond.timeStep, engine);
+						nextCheckpoint = System.nanoTime() + checkpointInterval;
+					}
+				}
+				if (stop) {
+					break;
+				}
+			}
+			LOG.println("Fixed step: scheme = " + SCHEME + ", solves = " + engine.getSolves());
+		}
+		if (IMPLICIT) {
+			LOG.println("Implicit coupling: iterations = " + engine.getImplicitIterations()
+					+ ", not converged steps = " + engine.getImplicitFailures());
+		}
+		if (engine.getCache() != null) {
+			LOG.println(engine.getCache().toString());
+		}
+		if (monitor != null) {
+			LOG.println(monitor.toString());
+			summary.put("settling time, s", monitor.isSettled() ? (Object) monitor.getSettlingTime() : "not settled");
+		}
+		if (events != null) {
+			LOG.println(events.toString());
+			for (EventDetector.Event e : events.getEvents()) {
+				summary.put("event " + e.getSpec() + ", s", e.isReached() ? (Object) e.getTime() : "not reached");
+			}
+		}
 
-		excelPrintHeaders(resultsMeter, resultsModule, resultsBattery, resultsRing, cr, ts);
-		excelPrintString(resultsMeter, resultsModule, resultsBattery, resultsRing, cr, ts, 0., 1);
+	}
+	
+	/***
+	 * Fixed step transient of the axial model, result sheets rows are the outlet block ring,
+	 * module totals go to {@link AxialChain#sheetNameAxial} sheet, blocks final state -
+	 * to {@link AxialChain#sheetNameRings} sheet
+	 */
+	void calcAxial(final ResultsWriter results) throws IOException {
+		AxialChain chain = new AxialChain(geom, cond, teProps, AXIAL);
+		chain.setProfiler(profiler);
+		LOG.println(chain.toString());
+		if (STEADY != null || ADAPTIVE_TOL > 0. || SETTLE_RATE > 0. || !EVENTS.isEmpty()) {
+			LOG.println("Axial model: steady state, adaptive step, settling and events are not used");
+		}
+		chain.start();
+		StepEngine outlet = chain.getOutlet();
+		excelPrintHeaders(results, outlet.getCalcRes(), outlet.getThermalState());
+		excelPrintString(results, outlet.getCalcRes(), outlet.getThermalState(), 0., 1);
+		ArrayList<ArrayList<Object>> module = new ArrayList<>();
+		module.add(chain.getHeaderArray());
+		module.add(chain.toStringArray(0.));
 		
-		int i = 0;
 		int j = 2;
+		int i = 0;
 		for (double time = 0; time < cond.timeEnd; time += cond.timeStep, i++) {
-			double Inew = getI(cr); 
-			cr = new TECalcRes(
-					ts.layerT_mod[xLayerInner], ts.layerT_mod[xLayerOuter], 
-					Inew, geom, teProps);
-			ts = new ThermalState(geom, cond, ts.layerT_mod, cr, cond.timeStep);
-			
+			chain.step(cond.timeStep);
 			if (i % cond.nToPrint == 0) {
-				excelPrintString(resultsMeter, resultsModule, resultsBattery, resultsRing, cr, ts, time, j);
+				excelPrintString(results, outlet.getCalcRes(), outlet.getThermalState(), time, j);
+				module.add(chain.toStringArray(time));
 				j++;
 			}
 		}
-
+		results.writeTable(AxialChain.sheetNameAxial, module);
+		results.writeTable(AxialChain.sheetNameRings, chain.getProfile());
+		summary.put("outlet T, 'C", chain.getToutlet());
+		summary.put("module Qc, W", chain.getQc());
+		summary.put("module Pe, W", chain.getPe());
+		summary.put("module COP", chain.getQc() / chain.getPe());
+		if (IMPLICIT) {
+			long iterations = 0;
+			long failures = 0;
+			for (int k = 0; k < chain.getBlocksCount(); k++) {
+				iterations += chain.getBlock(k).getImplicitIterations();
+				failures += chain.getBlock(k).getImplicitFailures();
+			}
+			LOG.println("Implicit coupling: iterations = " + iterations + ", not converged steps = " + failures);
+		}
 	}
 	
-	double getI(final TECalcRes cr) {
-		if (Math.abs(cond.I) < 1e-6) {
-			double v = cond.V /geom.nRingsInBattery/ geom.nBatteries;
-			if (cr == null) {
-				PrepareConsts temp_pc = new PrepareConsts(cond.Ttem_init, cond.Ttem_init, geom, teProps);
-				return  v / (temp_pc.Re_semi + temp_pc.Re_inner + temp_pc.Re_outer);
-			} else {
-				return (v - cr.pc.propsVals.alpha * (cr.TouterJunct - cr.TinnerJunct) *  (geom.nSegmentsInRing / 2.)) / 
-						(cr.pc.Re_semi + cr.pc.Re_inner + cr.pc.Re_outer);
+	/***
+	 * @return early termination monitor or null if it is off
+	 */
+	static SettleMonitor createSettleMonitor(final Conditions cond) {
+		if (SETTLE_RATE <= 0.) {
+			return null;
+		}
+		return new SettleMonitor(SETTLE_RATE, SETTLE_RESIDUAL,
+				Double.isNaN(SETTLE_WINDOW) ? cond.timeStep * cond.nToPrint : SETTLE_WINDOW);
+	}
+	
+	/***
+	 * @return threshold events detector or null if there are no events
+	 */
+	static EventDetector createEventDetector(final StepEngine engine, final Geom geom) throws InputDataException {
+		if (EVENTS.isEmpty()) {
+			return null;
+		}
+		return new EventDetector(engine, geom, EVENTS, EVENT_TOL);
+	}
+	
+	/***
+	 * Writes {@link #GENERATE} synthetic input to every path
+	 * @return failures count
+	 */
+	static int generate(final ArrayList<String> paths) {
+		int failures = 0;
+		for (String path : paths) {
+			try {
+				InputGenerator gen = InputGenerator.parse(GENERATE);
+				gen.write(new File(path));
+				LOG.println("Input " + gen + " is written to \"" + path + "\"");
+			} catch (IOException | InputDataException e) {
+				LOG.println(e.getMessage());
+				failures++;
 			}
-		} else {
-			return cond.I;
 		}
+		return failures;
 	}
-
+	
 	static double CtoK(final double C) {
 		return C + 273.15;
 	}
 	
-	public static void main(String[] args) {
+	/***
+	 * @return time scheme in lower case if valid
+	 * @throws IllegalArgumentException
+	 */
+	static String checkScheme(final String scheme) {
+		String s = scheme.toLowerCase(Locale.ROOT);
+		if (!s.contentEquals(SCHEME_EULER) && !s.contentEquals(SCHEME_BDF2)) {
+			throw new IllegalArgumentException("Unknown scheme \"" + scheme + "\", expected " + SCHEME_EULER + " or " + SCHEME_BDF2);
+		}
+		return s;
+	}
+	
+	/***
+	 * @return steady state mode in lower case if valid
+	 * @throws IllegalArgumentException
+	 */
+	static String checkSteady(final String steady) {
+		String s = steady.toLowerCase(Locale.ROOT);
+		if (!s.contentEquals(STEADY_ONLY) && !s.contentEquals(STEADY_START)) {
+			throw new IllegalArgumentException("Unknown steady state mode \"" + steady + "\", expected " + STEADY_ONLY + " or " + STEADY_START);
+		}
+		return s;
+	}
+	
+	/***
+	 * Sets static options from command line arguments
+	 * @return input paths (not option arguments), unknown options are ignored
+	 * @throws InputDataException wrong option value
+	 */
+	static ArrayList<String> parseArgs(final String[] args) throws InputDataException {
+		ArrayList<String> paths = new ArrayList<>();
 		for (String str : args) {
-			if (str.contentEquals("-debug")) {
-				Main.DEBUG = true;
+			try {
+				if (str.contentEquals("-debug")) {
+					Main.DEBUG = true;
+				} else if (str.contentEquals("-stream")) {
+					Main.STREAM_WINDOW = defaultStreamWindow;
+				} else if (str.startsWith("-stream=")) {
+					Main.STREAM_WINDOW = Integer.parseInt(str.substring("-stream=".length()));
+				} else if (str.startsWith("-threads=")) {
+					Main.THREADS = Integer.parseInt(str.substring("-threads=".length()));
+				} else if (str.contentEquals("-sweep")) {
+					Main.SWEEP = "list";
+				} else if (str.startsWith("-sweep=")) {
+					Main.SWEEP = str.substring("-sweep=".length());
+				} else if (str.startsWith("-cache=")) {
+					Main.CACHE_TOLERANCE = Double.parseDouble(str.substring("-cache=".length()));
+				} else if (str.startsWith("-cacheSize=")) {
+					Main.CACHE_SIZE = Integer.parseInt(str.substring("-cacheSize=".length()));
+				} else if (str.startsWith("-adaptive=")) {
+					Main.ADAPTIVE_TOL = Double.parseDouble(str.substring("-adaptive=".length()));
+				} else if (str.startsWith("-dtMin=")) {
+					Main.DT_MIN = Double.parseDouble(str.substring("-dtMin=".length()));
+				} else if (str.startsWith("-dtMax=")) {
+					Main.DT_MAX = Double.parseDouble(str.substring("-dtMax=".length()));
+				} else if (str.contentEquals("-steady")) {
+					Main.STEADY = STEADY_ONLY;
+				} else if (str.startsWith("-steady=")) {
+					Main.STEADY = checkSteady(str.substring("-steady=".length()));
+				} else if (str.startsWith("-settle=")) {
+					String[] v = str.substring("-settle=".length()).split(",");
+					Main.SETTLE_RATE = Double.parseDouble(v[0]);
+					if (v.length > 1) {
+						Main.SETTLE_RESIDUAL = Double.parseDouble(v[1]);
+					}
+				} else if (str.startsWith("-settleWindow=")) {
+					Main.SETTLE_WINDOW = Double.parseDouble(str.substring("-settleWindow=".length()));
+				} else if (str.startsWith("-event=")) {
+					Main.EVENTS.add(str.substring("-event=".length()));
+				} else if (str.startsWith("-eventTol=")) {
+					Main.EVENT_TOL = Double.parseDouble(str.substring("-eventTol=".length()));
+				} else if (str.contentEquals("-binary")) {
+					Main.BINARY = true;
+				} else if (str.contentEquals("-csv")) {
+					Main.CSV_DIGITS = defaultCsvDigits;
+				} else if (str.startsWith("-csv=")) {
+					Main.CSV_DIGITS = Integer.parseInt(str.substring("-csv=".length()));
+				} else if (str.startsWith("-log=")) {
+					Main.LOG_LEVEL = MathLogger.Level.valueOf(str.substring("-log=".length()).toUpperCase(Locale.ROOT));
+				} else if (str.contentEquals("-convert")) {
+					Main.CONVERT = true;
+				} else if (str.contentEquals("-implicit")) {
+					Main.IMPLICIT = true;
+				} else if (str.startsWith("-wiring=")) {
+					Main.WIRING = ElectricalNetwork.checkWiring(str.substring("-wiring=".length()));
+				} else if (str.contentEquals("-axial")) {
+					Main.AXIAL = Integer.MAX_VALUE;
+				} else if (str.startsWith("-axial=")) {
+					Main.AXIAL = Integer.parseInt(str.substring("-axial=".length()));
+				} else if (str.startsWith("-mesh=")) {
+					Main.MESH = Integer.parseInt(str.substring("-mesh=".length()));
+				} else if (str.startsWith("-scheme=")) {
+					Main.SCHEME = checkScheme(str.substring("-scheme=".length()));
+				} else if (str.startsWith("-target=")) {
+					Main.TARGET = Double.parseDouble(str.substring("-target=".length()));
+				} else if (str.startsWith("-optimize=")) {
+					Main.OPTIMIZE = str.substring("-optimize=".length());
+				} else if (str.startsWith("-optimizeTol=")) {
+					Main.OPTIMIZE_TOL = Double.parseDouble(str.substring("-optimizeTol=".length()));
+				} else if (str.startsWith("-optimizeTime=")) {
+					Main.OPTIMIZE_TIME = Double.parseDouble(str.substring("-optimizeTime=".length()));
+				} else if (str.startsWith("-montecarlo=")) {
+					String[] spec = str.substring("-montecarlo=".length()).split(",");
+					Main.MONTE_CARLO = Integer.parseInt(spec[0]);
+					if (spec.length > 1) {
+						Main.MONTE_CARLO_SEED = Long.parseLong(spec[1]);
+					}
+				} else if (str.contentEquals("-checkpoint")) {
+					Main.CHECKPOINT = defaultCheckpointInterval;
+				} else if (str.startsWith("-checkpoint=")) {
+					Main.CHECKPOINT = Double.parseDouble(str.substring("-checkpoint=".length()));
+				} else if (str.contentEquals("-resume") || str.contentEquals("--resume")) {
+					Main.RESUME = true;
+				} else if (str.contentEquals("-profile")) {
+					Main.PROFILE = true;
+				} else if (str.startsWith("-generate=")) {
+					Main.GENERATE = str.substring("-generate=".length());
+				} else if (!str.startsWith("-")) {
+					paths.add(str);
+				}
+			} catch (IllegalArgumentException e) {
+				throw new InputDataException("Wrong argument \"" + str + "\": " + e.getMessage());
 			}
 		}
-		LOG = new MathLogger();
-		new Main();
-		
+		return paths;
+	}
+	
+	public static void main(String[] args) {
+		ArrayList<String> paths;
+		try {
+			paths = parseArgs(args);
+		} catch (InputDataException e) {
+			LOG = new MathLogger(LOG_LEVEL);
+			LOG.println(e.getMessage());
+			LOG.close();
+			System.exit(1);
+			return;
+		}
+		LOG = new MathLogger(LOG_LEVEL);
+		int failures = 0;
+		try {
+			if (GENERATE != null) {
+				failures = generate(paths);
+			} else if (paths.isEmpty()) {
+				File fileIn = FileChooser.getFile();
+				try {
+					process(fileIn);
+				} catch (IOException | InputDataException e) {
+					LOG.println(e.getMessage());
+					failures++;
+				}
+			} else {
+				failures = new BatchRunner(BatchRunner.findFiles(paths), SWEEP == null && OPTIMIZE == null && MONTE_CARLO == 0 ? THREADS : 1).run();
+			}
+		} finally {
+			// queued log tail is written on a crash too
+			LOG.close();
+		}
+		if (failures > 0) {
+			System.exit(1);
+		}
 	}
 	
 
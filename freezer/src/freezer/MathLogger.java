@@ -1,25 +1,85 @@
 package freezer;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
 
 /***
- * Simple logger
+ * Simple logger<br>
+ * Log file is written by a background thread from a bounded queue (producers wait when it is full),
+ * flushed when the queue is drained. Messages may be lazy suppliers, they are evaluated
+ * by the writer thread and only if their level is on.<br>
+ * Levels: INFO - {@link #print(String)}, {@link #println(String)} (console and log),
+ * TRACE - {@link #printLog(String)}, {@link #printlnLog(String)} (log only, printed rows etc.)
  * @author sdushenkov
  *
  */
 class MathLogger {
-	private FileWriter pw = null;
+	enum Level {
+		OFF, INFO, TRACE
+	}
+
+	private static final int queueCapacity = 4096;
+	private static final int batchSize = 256;
+	private static final int bufferSize = 1 << 16;
+	/***
+	 * end of queue marker
+	 */
+	private static final Object closeMark = new Object();
+
+	private final Level level;
+	private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+	private Writer pw = null;
+	private Thread writer = null;
+	/***
+	 * false after {@link #close()}, later messages are dropped
+	 */
+	private volatile boolean open = false;
+	/***
+	 * messages of the current thread are dropped (e.g. repeated input parsing), see {@link #setMuted(boolean)}
+	 */
+	private final ThreadLocal<Boolean> muted = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
 	public MathLogger() {
+		this(Level.TRACE);
+	}
+
+	public MathLogger(final Level level) {
+		this.level = level;
+		if (level == Level.OFF) {
+			return;
+		}
 		try {
-			pw = new FileWriter(new File("log.txt"));
+			pw = new BufferedWriter(new FileWriter(new File("log.txt")), bufferSize);
 			printlnCons("Log creaded");
 		} catch (IOException e1) {
 			printlnCons("Can't create or access to \"log.txt\" file");
 			printlnCons(e1.getMessage());
+			return;
 		}
+		writer = new Thread(this::write, "MathLogger");
+		writer.setDaemon(true);
+		open = true;
+		writer.start();
 	}
+
+	public boolean isEnabled(final Level level) {
+		return open && level.compareTo(this.level) <= 0 && !muted.get();
+	}
+
+	/***
+	 * Drops or passes console and log messages of the current thread
+	 */
+	public void setMuted(final boolean muted) {
+		this.muted.set(muted);
+	}
+
 	public void printCons(final String str) {
 		System.out.print(str);
 	}
@@ -27,44 +87,132 @@ class MathLogger {
 		System.out.println(str);
 	}
 	public void print(final String str) {
-		if (!Main.DEBUG) {
+		if (!Main.DEBUG && !muted.get()) {
 			printCons(str);
 		}
-		printLog(str);
+		enqueue(Level.INFO, str);
 	}
 	public void println(final String str) {
-		if (!Main.DEBUG) {
+		if (!Main.DEBUG && !muted.get()) {
 			printlnCons(str);
 		}
-		printlnLog(str);
+		enqueue(Level.INFO, str + "\n");
 	}
 	public void printLog(final String str) {
-		if (Main.DEBUG) {
-			printCons(str);
+		enqueue(Level.TRACE, str);
+	}
+	public void printlnLog(final String str) {
+		enqueue(Level.TRACE, str + "\n");
+	}
+	/***
+	 * @param str evaluated by the writer thread if TRACE is on, so it has to use immutable data only
+	 */
+	public void printLog(final Supplier<String> str) {
+		enqueue(Level.TRACE, str);
+	}
+	public void printlnLog(final Supplier<String> str) {
+		if (isEnabled(Level.TRACE)) {
+			enqueue(Level.TRACE, (Supplier<String>) () -> str.get() + "\n");
 		}
-		if ( !isAlive() ) return;
+	}
+
+	private void enqueue(final Level level, final Object msg) {
+		if (!isEnabled(level)) {
+			if (Main.DEBUG && level == Level.INFO && !muted.get()) {
+				printCons(msg.toString());
+			}
+			return;
+		}
+		try {
+			queue.put(msg);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/***
+	 * Writer thread loop
+	 */
+	private void write() {
+		ArrayList<Object> batch = new ArrayList<>(batchSize);
+		boolean closed = false;
+		while (!closed) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			for (Object msg : batch) {
+				if (msg == closeMark) {
+					closed = true;
+					break;
+				}
+				String str;
+				try {
+					@SuppressWarnings("unchecked")
+					String s = msg instanceof Supplier ? ((Supplier<String>) msg).get() : (String) msg;
+					str = s;
+				} catch (RuntimeException e) {
+					str = "log message failed: " + e + "\n";
+				}
+				if (Main.DEBUG) {
+					printCons(str);
+				}
+				writeLog(str);
+			}
+			batch.clear();
+			if (queue.isEmpty() || closed) {
+				flushLog();
+			}
+		}
+	}
+
+	private void writeLog(final String str) {
+		if (pw == null) return;
 		try {
 			pw.write(str);
 		} catch (IOException e) {
-			try {
-				pw.close();
-			} catch (IOException e1) {
+			failed(e);
+		}
+	}
 
-			}
-			pw = null;
-			printlnCons("can' print to log file");
-			e.printStackTrace();
+	private void flushLog() {
+		if (pw == null) return;
+		try {
+			pw.flush();
+		} catch (IOException e) {
+			failed(e);
 		}
 	}
-	public void printlnLog(final String str) {
-		printLog(str + "\n");
+
+	private void failed(final IOException e) {
+		try {
+			pw.close();
+		} catch (IOException e1) {
+
+		}
+		pw = null;
+		printlnCons("can' print to log file");
+		e.printStackTrace();
 	}
-	
+
 	public boolean isAlive() {
-		return pw != null;
+		return writer != null && writer.isAlive();
 	}
+	/***
+	 * Writes all queued messages and closes log file
+	 */
 	public void close() {
 		if ( !isAlive() ) return;
+		open = false;
+		try {
+			queue.put(closeMark);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (pw == null) return;
 		try {
 			pw.close();
 		} catch (IOException e) {
@@ -72,4 +220,4 @@ class MathLogger {
 			e.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,461 @@
+package freezer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/***
+ * Monte Carlo uncertainty propagation: inputs are multiplied by random factors, every sample is
+ * a full transient (final state, time to target, settling time as in {@link SweepRunner})
+ * or a steady state ({@link SteadySolver}, <code>-steady</code>)<br>
+ * "MonteCarlo" sheet layout: first row - header, next rows - value name, distribution, relative spread<br>
+ * names: "alpha", "sigma", "lambda" - the whole table (n and p) by one factor,
+ * "alpha points", "sigma points", "lambda points" - every table point by its own factor,
+ * other - value names as printed to log ("Rcold", "Rhot", "Inner junction Re per segment", "Touter" ...)<br>
+ * distributions: normal - <code>1 + spread * N(0, 1)</code>, uniform - <code>1 + spread * U(-1, 1)</code>,
+ * lognormal - <code>exp(spread * N(0, 1))</code><br>
+ * Every sample has its own random stream split from the seed in samples order, samples are
+ * evaluated in chunks in parallel and added to the statistics in samples order, so results are
+ * reproducible for any threads count. Only a few chunks are kept in memory, statistics are streaming
+ * ({@link StreamingStats}). Results go to "_MONTECARLO.xlsx"
+ */
+class MonteCarlo {
+	public static final String sheetNameMonteCarlo = "MonteCarlo";
+	public static final String sheetNameInputs = "Inputs";
+	public static final String fileSuffix = "_MONTECARLO.xlsx";
+	public static final String ALPHA = "alpha";
+	public static final String SIGMA = "sigma";
+	public static final String LAMBDA = "lambda";
+	public static final String POINTS_SUFFIX = " points";
+	private static final double[] probabilities = {0.05, 0.25, 0.5, 0.75, 0.95};
+	/***
+	 * max samples count evaluated by one task
+	 */
+	private static final int maxChunkSize = 64;
+
+	enum Distribution {
+		NORMAL("normal"), UNIFORM("uniform"), LOGNORMAL("lognormal");
+		private final String string;
+		private Distribution(final String string) {
+			this.string = string;
+		}
+		static Distribution get(final String str) throws InputDataException {
+			for (Distribution d : values()) {
+				if (d.string.equalsIgnoreCase(str.trim())) {
+					return d;
+				}
+			}
+			throw new InputDataException("Unknown distribution \"" + str + "\" (normal, uniform, lognormal)");
+		}
+		/***
+		 * @return random factor
+		 */
+		double draw(final SplittableRandom rnd, final double spread) {
+			switch (this) {
+			case UNIFORM:
+				return 1. + spread * (2. * rnd.nextDouble() - 1.);
+			case LOGNORMAL:
+				return Math.exp(spread * gaussian(rnd));
+			default:
+				return 1. + spread * gaussian(rnd);
+			}
+		}
+		@Override
+		public String toString() {
+			return string;
+		}
+	}
+
+	/***
+	 * Single input variation ("MonteCarlo" sheet row)
+	 */
+	private static class Variation {
+		private final String name;
+		private final Distribution distribution;
+		private final double spread;
+
+		private Variation(final String name, final Distribution distribution, final double spread) {
+			this.name = name;
+			this.distribution = distribution;
+			this.spread = spread;
+		}
+	}
+
+	/***
+	 * Sample input, factors are drawn in samples order before parallel part
+	 */
+	private static class Case {
+		private final Geom geom;
+		private final Conditions cond;
+		private final TEProps props;
+		/***
+		 * named values of the sample, geometry and conditions are built by the worker
+		 * from the recorded input (POI is not thread safe), null - nominal ones
+		 */
+		private final Map<String, Double> overrides;
+
+		private Case(final Geom geom, final Conditions cond, final TEProps props, final Map<String, Double> overrides) {
+			this.geom = geom;
+			this.cond = cond;
+			this.props = props;
+			this.overrides = overrides;
+		}
+	}
+
+	private final File fileIn;
+	private final int samples;
+	private final long seed;
+	private final int threads;
+	private final double Ttarget;
+	private final boolean steady;
+	private final ArrayList<Variation> variations = new ArrayList<>();
+	/***
+	 * statistics names, see {@link #calc(Case)}
+	 */
+	private final ArrayList<String> names = new ArrayList<>();
+
+	/***
+	 * @param fileIn input workbook with "Thermoelectric", "Conditions" and "MonteCarlo" sheets
+	 * @param samples samples count
+	 * @param seed random seed
+	 * @param threads parallelism, 0 - available processors
+	 * @param Ttarget inner fluid target temperature, 'C (NaN - not used)
+	 * @param steady steady state samples instead of transient
+	 */
+	public MonteCarlo(
+			final File fileIn,
+			final int samples,
+			final long seed,
+			final int threads,
+			final double Ttarget,
+			final boolean steady) {
+		this.fileIn = fileIn;
+		this.samples = samples;
+		this.seed = seed;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.Ttarget = Ttarget;
+		this.steady = steady;
+		names.add("Tinner, 'C");
+		names.add("Qc, W");
+		names.add("Pe, W");
+		names.add("COP");
+		if (!steady && !Double.isNaN(Ttarget)) {
+			names.add("time to target, s");
+		}
+		if (!steady && Main.SETTLE_RATE > 0.) {
+			names.add("settling time, s");
+		}
+	}
+
+	public void run() throws IOException, InputDataException {
+		String fileOutPath = Main.getOutPath(fileIn, fileSuffix);
+		StreamingStats[] stats = new StreamingStats[names.size()];
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = new StreamingStats(probabilities);
+		}
+		long nano = System.nanoTime();
+		try (
+				FileInputStream file = new FileInputStream(fileIn);
+				Workbook workbookIn = new XSSFWorkbook(file)) {
+			FormulaEvaluator evaluator = workbookIn.getCreationHelper().createFormulaEvaluator();
+			Sheet sheetTE = getSheet(workbookIn, Main.sheetNameThermoelectric);
+			Sheet sheetCond = getSheet(workbookIn, Main.sheetNameConditions);
+			readVariations(new ExcelData(getSheet(workbookIn, sheetNameMonteCarlo), evaluator));
+
+			TEProps props = new TEProps(new ExcelData(sheetTE, evaluator));
+			Map<String, Double> nominal = new LinkedHashMap<>();
+			ExcelData envTE = new ExcelData(sheetTE, evaluator);
+			envTE.setReadValues(nominal);
+			envTE.setRecording();
+			ExcelData envCond = new ExcelData(sheetCond, evaluator);
+			envCond.setReadValues(nominal);
+			envCond.setRecording();
+			Geom geom = new Geom(envTE);
+			Conditions cond = new Conditions(envCond);
+			geom.updateMargins(cond);
+			boolean named = false;
+			for (Variation v : variations) {
+				if (!isTable(v.name)) {
+					if (!nominal.containsKey(v.name)) {
+						throw new InputDataException("Unknown value name \"" + v.name + "\" on sheet \""
+								+ sheetNameMonteCarlo + "\"");
+					}
+					named = true;
+				}
+			}
+			Main.LOG.println("Monte Carlo: " + samples + " sample(s), seed = " + seed + ", " + threads + " thread(s)");
+
+			SplittableRandom root = new SplittableRandom(seed);
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			ArrayDeque<Future<double[][]>> pending = new ArrayDeque<>();
+			// chunks do not change the results: streams are split and statistics are added in samples order
+			int chunkSize = Math.max(1, Math.min(maxChunkSize, samples / (4 * threads)));
+			try {
+				for (int first = 0; first < samples; first += chunkSize) {
+					ArrayList<Case> chunk = new ArrayList<>();
+					for (int i = first; i < Math.min(samples, first + chunkSize); i++) {
+						chunk.add(createCase(root.split(), props, nominal, named, geom, cond));
+					}
+					pending.add(pool.submit(() -> calc(chunk, envTE, envCond)));
+					if (pending.size() >= 2 * threads) {
+						addAll(stats, pending.poll().get());
+					}
+				}
+				while (!pending.isEmpty()) {
+					addAll(stats, pending.poll().get());
+				}
+			} catch (ExecutionException e) {
+				throw new InputDataException("Monte Carlo sample failed: " + e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		Main.LOG.println("Monte Carlo finished in " + ((System.nanoTime() - nano) / 1_000_000L) + " ms");
+		Main.LOG.print(toString(stats));
+
+		try (
+				FileOutputStream outputStream = new FileOutputStream(fileOutPath);
+				XSSFWorkbook workbookOut = new XSSFWorkbook()) {
+			printStats(new ExcelData(workbookOut.createSheet(sheetNameMonteCarlo), null), stats);
+			printInputs(new ExcelData(workbookOut.createSheet(sheetNameInputs), null));
+			workbookOut.write(outputStream);
+		}
+	}
+
+	private static Sheet getSheet(final Workbook wb, final String name) throws InputDataException {
+		Sheet sheet = wb.getSheet(name);
+		if (sheet == null) {
+			throw new InputDataException("Sheet \"" + name + "\" not found");
+		}
+		return sheet;
+	}
+
+	private void readVariations(final ExcelData env) throws InputDataException {
+		for (int row = 1; env.cellExist(row, 0); row++) {
+			variations.add(new Variation(
+					env.getString(row, 0).trim(),
+					Distribution.get(env.getString(row, 1)),
+					env.getDouble(row, 2)));
+		}
+		if (variations.isEmpty()) {
+			throw new InputDataException("Sheet \"" + sheetNameMonteCarlo + "\" has no values to vary");
+		}
+	}
+
+	private static boolean isTable(final String name) {
+		String table = name.endsWith(POINTS_SUFFIX) ? name.substring(0, name.length() - POINTS_SUFFIX.length()) : name;
+		return table.equals(ALPHA) || table.equals(SIGMA) || table.equals(LAMBDA);
+	}
+
+	/***
+	 * Draws sample factors in variations order
+	 */
+	private Case createCase(
+			final SplittableRandom rnd,
+			final TEProps props,
+			final Map<String, Double> nominal,
+			final boolean named,
+			final Geom geom,
+			final Conditions cond) {
+		int n = props.getPointsCount();
+		double[][] mult = new double[3][n];
+		for (double[] m : mult) {
+			Arrays.fill(m, 1.);
+		}
+		Map<String, Double> ov = new LinkedHashMap<>();
+		for (Variation v : variations) {
+			if (isTable(v.name)) {
+				double[] m = mult[v.name.startsWith(ALPHA) ? 0 : v.name.startsWith(SIGMA) ? 1 : 2];
+				if (v.name.endsWith(POINTS_SUFFIX)) {
+					for (int i = 0; i < n; i++) {
+						m[i] *= v.distribution.draw(rnd, v.spread);
+					}
+				} else {
+					double f = v.distribution.draw(rnd, v.spread);
+					for (int i = 0; i < n; i++) {
+						m[i] *= f;
+					}
+				}
+			} else {
+				double base = ov.containsKey(v.name) ? ov.get(v.name) : nominal.get(v.name);
+				ov.put(v.name, base * v.distribution.draw(rnd, v.spread));
+			}
+		}
+		TEProps sampleProps = new TEProps(props, mult[0], mult[1], mult[2]);
+		return named ? new Case(null, null, sampleProps, ov) : new Case(geom, cond, sampleProps, null);
+	}
+
+	/***
+	 * Chunk evaluation, no shared mutable state
+	 * @param envTE recorded nominal "Thermoelectric" sheet, see {@link ExcelData#copy(Map)}
+	 * @param envCond recorded nominal "Conditions" sheet
+	 * @return values for {@link #names} of every sample, NaN - failed
+	 */
+	private double[][] calc(final List<Case> chunk, final ExcelData envTE, final ExcelData envCond) throws InputDataException {
+		double[][] res = new double[chunk.size()][];
+		for (int i = 0; i < chunk.size(); i++) {
+			Case c = chunk.get(i);
+			if (c.overrides != null) {
+				// the same tables as the nominal input, they are logged once
+				Main.LOG.setMuted(true);
+				try {
+					Geom geom = new Geom(envTE.copy(c.overrides));
+					Conditions cond = new Conditions(envCond.copy(c.overrides));
+					geom.updateMargins(cond);
+					c = new Case(geom, cond, c.props, null);
+				} finally {
+					Main.LOG.setMuted(false);
+				}
+			}
+			res[i] = calc(c);
+		}
+		return res;
+	}
+
+	private double[] calc(final Case c) throws InputDataException {
+		double mult = c.geom.nRingsInBattery * c.geom.nBatteries;
+		double[] res = new double[names.size()];
+		if (steady) {
+			StepEngine engine = new StepEngine(c.geom, c.cond, c.props);
+			try {
+				new SteadySolver(engine, c.geom, c.cond).solve();
+			} catch (InputDataException e) {
+				Arrays.fill(res, Double.NaN);
+				return res;
+			}
+			res[0] = engine.layerT_mod[0];
+			res[1] = engine.getQc() * mult;
+			res[2] = engine.getPe() * mult;
+			res[3] = engine.getCOP();
+			return res;
+		}
+		SweepRunner.CaseResult r = SweepRunner.calc(c.geom, c.cond, c.props, Ttarget);
+		int i = 0;
+		res[i++] = r.layerT_mod[0];
+		res[i++] = r.Qc;
+		res[i++] = r.Pe;
+		res[i++] = r.COP;
+		if (!Double.isNaN(Ttarget)) {
+			res[i++] = r.timeToTarget;
+		}
+		if (Main.SETTLE_RATE > 0.) {
+			res[i++] = r.settlingTime;
+		}
+		return res;
+	}
+
+	private static void addAll(final StreamingStats[] stats, final double[][] values) {
+		for (double[] v : values) {
+			for (int i = 0; i < stats.length; i++) {
+				stats[i].add(v[i]);
+			}
+		}
+	}
+
+	/***
+	 * Standard normal (polar method, SplittableRandom has no gaussian in Java 11)
+	 */
+	static double gaussian(final SplittableRandom rnd) {
+		double u;
+		double v;
+		double s;
+		do {
+			u = 2. * rnd.nextDouble() - 1.;
+			v = 2. * rnd.nextDouble() - 1.;
+			s = u * u + v * v;
+		} while (s >= 1. || s == 0.);
+		return u * Math.sqrt(-2. * Math.log(s) / s);
+	}
+
+	private ArrayList<Object> getHeaderArray() {
+		ArrayList<Object> vals = new ArrayList<>();
+		vals.add("value");
+		vals.add("samples");
+		vals.add("failed");
+		vals.add("mean");
+		vals.add("std");
+		vals.add("min");
+		for (double p : probabilities) {
+			vals.add(String.format(Locale.ROOT, "p%.0f", p * 100.));
+		}
+		vals.add("max");
+		return vals;
+	}
+
+	private ArrayList<Object> toStringArray(final String name, final StreamingStats s) {
+		ArrayList<Object> vals = new ArrayList<>();
+		vals.add(name);
+		vals.add((double) s.getCount());
+		vals.add((double) s.getFailures());
+		vals.add(s.getMean());
+		vals.add(s.getStd());
+		vals.add(s.getMin());
+		for (int i = 0; i < probabilities.length; i++) {
+			vals.add(s.getQuantile(i));
+		}
+		vals.add(s.getMax());
+		return vals;
+	}
+
+	private void printStats(final ExcelData out, final StreamingStats[] stats) {
+		out.setString(0, 0, getHeaderArray());
+		for (int i = 0; i < stats.length; i++) {
+			out.setString(i + 1, 0, toStringArray(names.get(i), stats[i]));
+		}
+	}
+
+	private void printInputs(final ExcelData out) {
+		ArrayList<Object> vals = new ArrayList<>();
+		vals.add("value");
+		vals.add("distribution");
+		vals.add("spread");
+		out.setString(0, 0, vals);
+		int row = 1;
+		for (Variation v : variations) {
+			vals.clear();
+			vals.add(v.name);
+			vals.add(v.distribution.toString());
+			vals.add(v.spread);
+			out.setString(row++, 0, vals);
+		}
+		vals.clear();
+		vals.add("samples");
+		vals.add((double) samples);
+		out.setString(++row, 0, vals);
+		vals.clear();
+		vals.add("seed");
+		vals.add((double) seed);
+		out.setString(++row, 0, vals);
+	}
+
+	private String toString(final StreamingStats[] stats) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < stats.length; i++) {
+			StreamingStats s = stats[i];
+			sb.append(String.format(Locale.ROOT, "%-20s|%8d|%6d|%14.6g|%14.6g|%14.6g|%14.6g|%14.6g|%n",
+					names.get(i), s.getCount(), s.getFailures(), s.getMean(), s.getStd(),
+					s.getQuantile(0), s.getQuantile(2), s.getQuantile(probabilities.length - 1)));
+		}
+		return "Monte Carlo (value|samples|failed|mean|std|p5|p50|p95):\n" + sb;
+	}
+}
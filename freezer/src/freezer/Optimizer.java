@@ -0,0 +1,353 @@
+package freezer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/***
+ * Operating current (or voltage in voltage mode) search for the best objective:<br>
+ * qc - mean module cold side heat flow over a truncated transient (Tend, <code>-optimizeTime</code>),<br>
+ * cop - transient cold side heat over electrical energy,<br>
+ * tmin - lowest steady state inner fluid temperature (steady state cold side heat flow is always zero,
+ * see {@link SteadySolver})<br>
+ * Parallel section search: a coarse scan of the range gives the sampled curve and the bracket of the best point,
+ * then every round evaluates <code>threads</code> (at least 2) evenly spaced points inside the bracket in parallel
+ * and narrows it to the neighbours of the best one (golden section generalized to k points per round).
+ * The objective is expected to be unimodal in the bracket.<br>
+ * Results go to "_OPTIMUM.xlsx": "Optimum" sheet and "Curve" sheet with all sampled points
+ */
+class Optimizer {
+	public static final String fileSuffix = "_OPTIMUM.xlsx";
+	public static final String OBJECTIVE_QC = "qc";
+	public static final String OBJECTIVE_COP = "cop";
+	public static final String OBJECTIVE_TMIN = "tmin";
+	public static final String sheetNameOptimum = "Optimum";
+	public static final String sheetNameCurve = "Curve";
+
+	private static final int minScanPoints = 9;
+	private static final int maxEvaluations = 500;
+
+	private final File fileIn;
+	private final String objective;
+	private final int threads;
+	/***
+	 * search range, NaN - from 0.1 to 2 input values
+	 */
+	private final double lo;
+	private final double hi;
+	/***
+	 * bracket width to stop, fraction of the range
+	 */
+	private final double tolerance;
+	/***
+	 * transient length override, s (NaN - Tend from input)
+	 */
+	private final double horizon;
+
+	/***
+	 * Evaluated point
+	 */
+	private static class Sample {
+		private double x;
+		/***
+		 * maximized value (minus temperature for tmin)
+		 */
+		private double objective;
+		/***
+		 * reported objective value
+		 */
+		private double value;
+		private double I;
+		private double Qc;
+		private double Pe;
+		private double COP;
+		private double Tinner;
+	}
+
+	/***
+	 * @param fileIn input workbook
+	 * @param spec <code>qc|cop|tmin[,lo,hi]</code>
+	 * @param threads parallelism, 0 - available processors
+	 * @param tolerance bracket width to stop, fraction of the range
+	 * @param horizon transient length, s (NaN - Tend from input)
+	 */
+	public Optimizer(
+			final File fileIn,
+			final String spec,
+			final int threads,
+			final double tolerance,
+			final double horizon) throws InputDataException {
+		String[] v = spec.split(",");
+		objective = v[0];
+		if (!objective.contentEquals(OBJECTIVE_QC) && !objective.contentEquals(OBJECTIVE_COP)
+				&& !objective.contentEquals(OBJECTIVE_TMIN)) {
+			throw new InputDataException("Unknown objective \"" + objective + "\", qc, cop or tmin expected");
+		}
+		if (v.length == 3) {
+			lo = Double.parseDouble(v[1]);
+			hi = Double.parseDouble(v[2]);
+			if (!(hi > lo)) {
+				throw new InputDataException("Wrong optimization range [" + lo + ", " + hi + "]");
+			}
+		} else if (v.length == 1) {
+			lo = Double.NaN;
+			hi = Double.NaN;
+		} else {
+			throw new InputDataException("Optimization spec qc|cop|tmin[,lo,hi] expected: " + spec);
+		}
+		this.fileIn = fileIn;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.tolerance = tolerance;
+		this.horizon = horizon;
+	}
+
+	public void run() throws IOException, InputDataException {
+		String fileOutPath = Main.getOutPath(fileIn, fileSuffix);
+		TreeMap<Double, Sample> samples = new TreeMap<>();
+		String name;
+		double from;
+		double to;
+		long nano = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try (
+				FileInputStream file = new FileInputStream(fileIn);
+				Workbook workbookIn = new XSSFWorkbook(file)) {
+			FormulaEvaluator evaluator = workbookIn.getCreationHelper().createFormulaEvaluator();
+			Sheet sheetTE = getSheet(workbookIn, Main.sheetNameThermoelectric);
+			Sheet sheetCond = getSheet(workbookIn, Main.sheetNameConditions);
+			TEProps props = new TEProps(new ExcelData(sheetTE, evaluator));
+			Geom geom = new Geom(new ExcelData(sheetTE, evaluator));
+			Conditions base = new Conditions(new ExcelData(sheetCond, evaluator));
+			geom.updateMargins(base);
+
+			boolean voltage = Math.abs(base.I) < 1e-6;
+			name = voltage ? "V" : "I";
+			double x0 = voltage ? base.V : base.I;
+			from = Double.isNaN(lo) ? Math.min(0.1 * x0, 2. * x0) : lo;
+			to = Double.isNaN(hi) ? Math.max(0.1 * x0, 2. * x0) : hi;
+			if (!(to > from)) {
+				throw new InputDataException("Optimization range is empty, set it as -optimize=" + objective + ",lo,hi");
+			}
+			Main.LOG.println("Optimization: " + objective + " by " + name + " in [" + from + ", " + to + "], "
+					+ threads + " thread(s)");
+
+			double[] bracket = {from, to};
+			int nPoints = Math.max(minScanPoints, threads + 2);
+			ArrayList<Double> xs = new ArrayList<>();
+			for (int i = 0; i < nPoints; i++) {
+				xs.add(from + (to - from) * i / (nPoints - 1));
+			}
+			while (true) {
+				evaluate(pool, xs, name, sheetCond, evaluator, geom, props, samples);
+				bracket = getBracket(samples, bracket);
+				if (bracket[1] - bracket[0] <= tolerance * (to - from) || samples.size() >= maxEvaluations) {
+					break;
+				}
+				int k = Math.max(2, threads);
+				xs.clear();
+				for (int i = 1; i <= k; i++) {
+					double x = bracket[0] + (bracket[1] - bracket[0]) * i / (k + 1);
+					if (!samples.containsKey(x)) {
+						xs.add(x);
+					}
+				}
+				if (xs.isEmpty()) {
+					break;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		Sample best = getBest(samples);
+		Main.LOG.println("Optimization finished in " + ((System.nanoTime() - nano) / 1_000_000L) + " ms, "
+				+ samples.size() + " evaluations, optimum " + name + " = " + best.x
+				+ ", " + objective + " = " + best.value);
+		if (best.x == samples.firstKey() || best.x == samples.lastKey()) {
+			Main.LOG.println("Warning optimum is at the range bound, set wider range as -optimize="
+					+ objective + ",lo,hi");
+		}
+
+		try (
+				FileOutputStream outputStream = new FileOutputStream(fileOutPath);
+				XSSFWorkbook workbookOut = new XSSFWorkbook()) {
+			printOptimum(new ExcelData(workbookOut.createSheet(sheetNameOptimum), null), name, best, samples.size());
+			printCurve(new ExcelData(workbookOut.createSheet(sheetNameCurve), null), name, samples);
+			workbookOut.write(outputStream);
+		}
+	}
+
+	private static Sheet getSheet(final Workbook wb, final String name) throws InputDataException {
+		Sheet sheet = wb.getSheet(name);
+		if (sheet == null) {
+			throw new InputDataException("Sheet \"" + name + "\" not found");
+		}
+		return sheet;
+	}
+
+	/***
+	 * Reads conditions for every point (POI is not thread safe), then evaluates them in parallel
+	 */
+	private void evaluate(
+			final ForkJoinPool pool,
+			final List<Double> xs,
+			final String name,
+			final Sheet sheetCond,
+			final FormulaEvaluator evaluator,
+			final Geom geom,
+			final TEProps props,
+			final Map<Double, Sample> samples) throws InputDataException {
+		ArrayList<Callable<Sample>> tasks = new ArrayList<>();
+		for (double x : xs) {
+			TreeMap<String, Double> ov = new TreeMap<>();
+			ov.put(name, x);
+			if (!Double.isNaN(horizon)) {
+				ov.put("Tend", horizon);
+			}
+			Conditions cond = new Conditions(new ExcelData(sheetCond, evaluator, ov));
+			tasks.add(() -> calc(x, geom, cond, props));
+		}
+		try {
+			for (Future<Sample> f : pool.invokeAll(tasks)) {
+				Sample s = f.get();
+				samples.put(s.x, s);
+			}
+		} catch (ExecutionException e) {
+			throw new InputDataException("Optimization point failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InputDataException("Optimization interrupted");
+		}
+	}
+
+	/***
+	 * Single point evaluation, no shared mutable state
+	 * @return sample, not converged steady state is the worst objective
+	 */
+	private Sample calc(
+			final double x,
+			final Geom geom,
+			final Conditions cond,
+			final TEProps props) {
+		StepEngine engine = new StepEngine(geom, cond, props);
+		Sample s = new Sample();
+		s.x = x;
+		double mult = geom.nRingsInBattery * geom.nBatteries;
+		if (objective.contentEquals(OBJECTIVE_TMIN)) {
+			try {
+				new SteadySolver(engine, geom, cond).solve();
+			} catch (InputDataException e) {
+				Main.LOG.println(x + ": " + e.getMessage());
+				s.objective = Double.NEGATIVE_INFINITY;
+				s.value = s.I = s.Qc = s.Pe = s.COP = s.Tinner = Double.NaN;
+				return s;
+			}
+			s.Tinner = engine.layerT_mod[0];
+			s.value = s.Tinner;
+			s.objective = -s.Tinner;
+			s.Qc = engine.getQc() * mult;
+			s.Pe = engine.getPe() * mult;
+		} else {
+			engine.start();
+			double Ec = 0.;
+			double Ee = 0.;
+			double time = 0.;
+			for (; time < cond.timeEnd; time += cond.timeStep) {
+				engine.step(cond.timeStep);
+				Ec += engine.getQc() * cond.timeStep;
+				Ee += engine.getPe() * cond.timeStep;
+			}
+			s.Tinner = engine.layerT_mod[0];
+			s.Qc = Ec / time * mult;
+			s.Pe = Ee / time * mult;
+			s.value = objective.contentEquals(OBJECTIVE_QC) ? s.Qc : Ec / Ee;
+			s.objective = s.value;
+		}
+		s.I = engine.getI();
+		s.COP = s.Qc / s.Pe;
+		if (Double.isNaN(s.objective)) {
+			s.objective = Double.NEGATIVE_INFINITY;
+		}
+		return s;
+	}
+
+	private static Sample getBest(final TreeMap<Double, Sample> samples) {
+		Sample best = null;
+		for (Sample s : samples.values()) {
+			if (best == null || s.objective > best.objective) {
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	/***
+	 * @return neighbours of the best point inside the current bracket
+	 */
+	private static double[] getBracket(final TreeMap<Double, Sample> samples, final double[] bracket) {
+		ArrayList<Sample> in = new ArrayList<>(samples.subMap(bracket[0], true, bracket[1], true).values());
+		int b = in.indexOf(Collections.max(in, (s1, s2) -> Double.compare(s1.objective, s2.objective)));
+		return new double[] {in.get(Math.max(0, b - 1)).x, in.get(Math.min(in.size() - 1, b + 1)).x};
+	}
+
+	private void printOptimum(final ExcelData out, final String name, final Sample best, final int evaluations) {
+		ArrayList<Object> vals = new ArrayList<>();
+		int row = 0;
+		Object[][] items = {
+				{"objective", objective},
+				{"variable", name},
+				{"optimum " + name, best.x},
+				{"objective value", best.value},
+				{"I, A", best.I},
+				{"Qc, W", best.Qc},
+				{"Pe, W", best.Pe},
+				{"COP", best.COP},
+				{"Tinner, 'C", best.Tinner},
+				{"evaluations", (double) evaluations},
+		};
+		for (Object[] item : items) {
+			vals.clear();
+			vals.add(item[0]);
+			vals.add(item[1]);
+			out.setString(row++, 0, vals);
+		}
+	}
+
+	private static void printCurve(final ExcelData out, final String name, final TreeMap<Double, Sample> samples) {
+		ArrayList<Object> vals = new ArrayList<>();
+		vals.add(name);
+		vals.add("objective");
+		vals.add("I, A");
+		vals.add("Qc, W");
+		vals.add("Pe, W");
+		vals.add("COP");
+		vals.add("Tinner, 'C");
+		out.setString(0, 0, vals);
+		int row = 1;
+		for (Sample s : samples.values()) {
+			vals.clear();
+			vals.add(s.x);
+			vals.add(s.value);
+			vals.add(s.I);
+			vals.add(s.Qc);
+			vals.add(s.Pe);
+			vals.add(s.COP);
+			vals.add(s.Tinner);
+			out.setString(row++, 0, vals);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package freezer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Cumulative time and calls count of calculation phases of a single run<br>
+ * <code>long t = profiler.start(); ...; profiler.stop(Phase.SOLVE, t);</code><br>
+ * Disabled profiler ({@link #OFF}) does not read the clock, phases must not be nested
+ */
+class PhaseProfiler {
+	public static final String sheetName = "Performance";
+
+	enum Phase {
+		/***
+		 * input workbook reading, {@link TEProps}, {@link Geom}, {@link Conditions}
+		 */
+		PARSE("input parsing"),
+		/***
+		 * averaged properties and resistances, see {@link PrepareConsts}
+		 */
+		PROPS("properties evaluation"),
+		/***
+		 * implicit step assembling and tridiagonal solve, see {@link ThermalState}
+		 */
+		SOLVE("linear solve"),
+		/***
+		 * result rows formatting and writing to results, see {@link Main#excelPrintString}
+		 */
+		FORMAT("row formatting"),
+		/***
+		 * results closing (workbook serialization, file flush)
+		 */
+		SERIALIZE("results serialization");
+
+		private final String string;
+
+		private Phase(final String string) {
+			this.string = string;
+		}
+
+		@Override
+		public String toString() {
+			return string;
+		}
+	}
+
+	/***
+	 * Shared disabled profiler
+	 */
+	static final PhaseProfiler OFF = new PhaseProfiler(false);
+
+	private final boolean enabled;
+	private final long[] nanos = new long[Phase.values().length];
+	private final long[] calls = new long[Phase.values().length];
+
+	public PhaseProfiler() {
+		this(true);
+	}
+
+	private PhaseProfiler(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/***
+	 * @return phase start mark
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/***
+	 * @param phase
+	 * @param start {@link #start()} mark
+	 */
+	public void stop(final Phase phase, final long start) {
+		if (enabled) {
+			nanos[phase.ordinal()] += System.nanoTime() - start;
+			calls[phase.ordinal()]++;
+		}
+	}
+
+	public long getNanos(final Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	public long getCalls(final Phase phase) {
+		return calls[phase.ordinal()];
+	}
+
+	/***
+	 * @param wallNanos whole run time, ns
+	 * @return header, a row per phase with calls (phase, calls, total ms, per call us, share of run %)
+	 * and the run total row
+	 */
+	public List<ArrayList<Object>> getTable(final long wallNanos) {
+		ArrayList<ArrayList<Object>> rows = new ArrayList<>();
+		ArrayList<Object> row = new ArrayList<>();
+		row.add("phase");
+		row.add("calls");
+		row.add("total, ms");
+		row.add("per call, us");
+		row.add("share, %");
+		rows.add(row);
+		for (Phase p : Phase.values()) {
+			if (getCalls(p) == 0) {
+				continue;
+			}
+			row = new ArrayList<>();
+			row.add(p.toString());
+			row.add((double) getCalls(p));
+			row.add(getNanos(p) / 1e6);
+			row.add(getNanos(p) / 1e3 / getCalls(p));
+			row.add(wallNanos > 0 ? 100. * getNanos(p) / wallNanos : 0.);
+			rows.add(row);
+		}
+		row = new ArrayList<>();
+		row.add("run total");
+		row.add(1.);
+		row.add(wallNanos / 1e6);
+		row.add(wallNanos / 1e3);
+		row.add(100.);
+		rows.add(row);
+		return rows;
+	}
+
+	/***
+	 * @param wallNanos whole run time, ns
+	 * @return {@link #getTable(long)} as text
+	 */
+	public String toString(final long wallNanos) {
+		StringBuilder sb = new StringBuilder("Performance:\n");
+		for (ArrayList<Object> row : getTable(wallNanos)) {
+			if (row.get(1) instanceof String) {
+				sb.append(String.format(Locale.ROOT, "%-22s|%12s|%12s|%14s|%9s|%n", row.toArray()));
+			} else {
+				sb.append(String.format(Locale.ROOT, "%-22s|%12.0f|%12.1f|%14.3f|%9.2f|%n", row.toArray()));
+			}
+		}
+		return sb.toString();
+	}
+}
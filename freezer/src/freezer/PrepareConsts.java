@@ -50,28 +50,47 @@ public class PrepareConsts {
 		this.propsVals = new PropsValues(props, Tcold, Thot);
 		this.geom = geom;
 		
-		double Re_mat = 1. / 2. / Math.PI / propsVals.sigma  
-				* Math.log(geom.layerRin[geom.Xlayer + 1] / geom.layerRin[geom.Xlayer])
-				/ geom.ringThickness / geom.Xvolume_factor;
-		double Rh_mat = 1. / 2. / Math.PI / propsVals.lambda 
-				* Math.log(geom.layerRin[geom.Xlayer + 1] / geom.layerRin[geom.Xlayer])
-				 / geom.ringThickness / geom.Xvolume_factor;
+		double shapeFactor = getShapeFactor(geom);
+		double Re_mat = shapeFactor / propsVals.sigma;
+		double Rh_mat = shapeFactor / propsVals.lambda;
 		
 		Re_semi = Re_mat * geom.nSegmentsInRing * geom.nSegmentsInRing;
 		Rh_semi = Rh_mat;
 		
-		Re_inner = 
-				( 
+		Re_inner = getRe_inner(geom, TinnerJunct);
+		Re_outer = getRe_outer(geom, TouterJunct);
+	}
+	
+	/***
+	 * Semiconductor layer resistance per unit of resistivity (per ring), 1/m<br>
+	 * <code>ln(Rout / Rin) / 2 / pi / ringThickness / Xvolume_factor</code>
+	 */
+	static double getShapeFactor(final Geom geom) {
+		return 1. / 2. / Math.PI  
+				* Math.log(geom.layerRin[geom.Xlayer + 1] / geom.layerRin[geom.Xlayer])
+				/ geom.ringThickness / geom.Xvolume_factor;
+	}
+	
+	/***
+	 * Electrical resistance of inner conductor (per ring), Ohm 
+	 */
+	static double getRe_inner(final Geom geom, final double TinnerJunct) {
+		return ( 
 					geom.innerConductor.getConductorRho(TinnerJunct) 
 					* 2. * Math.PI * geom.layerRin[geom.Xlayer]
-					/ geom.layerThickness[geom.Xlayer - 1] / geom.ringThickness / geom.Xvolume_factor
+					/ geom.innerConductorThickness / geom.ringThickness / geom.Xvolume_factor
 				) * geom.ReMultInner 
 				+ geom.ReInJunction * geom.nSegmentsInRing;
-		Re_outer = 
-				(
+	}
+	
+	/***
+	 * Electrical resistance of outer conductor (per ring), Ohm 
+	 */
+	static double getRe_outer(final Geom geom, final double TouterJunct) {
+		return (
 					geom.outerConductor.getConductorRho(TouterJunct) 
 					* 2. * Math.PI * geom.layerRin[geom.Xlayer + 1] 
-					/ geom.layerThickness[geom.Xlayer + 1] / geom.ringThickness / geom.Xvolume_factor
+					/ geom.outerConductorThickness / geom.ringThickness / geom.Xvolume_factor
 				) * geom.ReMultOuter +
 				geom.ReOutJunction * geom.nSegmentsInRing;
 	}
@@ -114,11 +133,15 @@ public class PrepareConsts {
 		default:
 			mult = 0.;
 		}
+		// electrical resistance of the battery or module depends on the wiring
+		double multRe = type == NormalizationType.METER ? mult
+				: ElectricalNetwork.getSeriesRings(geom, Main.WIRING, type)
+				/ ElectricalNetwork.getParallelRings(geom, Main.WIRING, type);
 		vals.clear();
 		vals.add(Rh_semi / mult);
-		vals.add(Re_semi * mult);
-		vals.add(Re_inner * mult);
-		vals.add(Re_outer * mult);
+		vals.add(Re_semi * multRe);
+		vals.add(Re_inner * multRe);
+		vals.add(Re_outer * multRe);
 		return vals;
 	}
 		
@@ -0,0 +1,101 @@
+package freezer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Bounded LRU cache of {@link PrepareConsts} keyed on junction temperatures
+ * rounded to a tolerance<br>
+ * Values are calculated at rounded temperatures, so junction temperatures error is
+ * at most tolerance / 2 and properties error at most tolerance / 2 * |dProp/dT|<br>
+ * <i>note: not thread safe, one cache per {@link StepEngine}</i>
+ */
+class PropsCache {
+	/***
+	 * Rounded junction temperatures pair
+	 */
+	private static final class Key {
+		private long inner;
+		private long outer;
+
+		private Key(final long inner, final long outer) {
+			this.inner = inner;
+			this.outer = outer;
+		}
+		@Override
+		public int hashCode() {
+			return Long.hashCode(inner * 31 + outer);
+		}
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return k.inner == inner && k.outer == outer;
+		}
+	}
+
+	private final double tolerance;
+	private final int capacity;
+	private final LinkedHashMap<Key, PrepareConsts> map;
+	/***
+	 * reused for lookups, so hits do not allocate
+	 */
+	private final Key probe = new Key(0, 0);
+
+	private long hits;
+	private long misses;
+
+	/***
+	 * @param tolerance junction temperatures rounding, K
+	 * @param capacity max entries count
+	 */
+	public PropsCache(final double tolerance, final int capacity) {
+		this.tolerance = tolerance;
+		this.capacity = capacity;
+		this.map = new LinkedHashMap<Key, PrepareConsts>(capacity * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, PrepareConsts> eldest) {
+				return size() > PropsCache.this.capacity;
+			}
+		};
+	}
+
+	/***
+	 * @return constants for rounded junction temperatures
+	 */
+	public PrepareConsts get(
+			final double TinnerJunct,
+			final double TouterJunct,
+			final Geom geom,
+			final TEProps props) {
+		probe.inner = Math.round(TinnerJunct / tolerance);
+		probe.outer = Math.round(TouterJunct / tolerance);
+		PrepareConsts pc = map.get(probe);
+		if (pc != null) {
+			hits++;
+			return pc;
+		}
+		misses++;
+		pc = new PrepareConsts(probe.inner * tolerance, probe.outer * tolerance, geom, props);
+		map.put(new Key(probe.inner, probe.outer), pc);
+		return pc;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+	public long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public String toString() {
+		long total = hits + misses;
+		return "Props cache: tolerance = " + tolerance + " K, size = " + map.size() + "/" + capacity
+				+ ", hits = " + hits + ", misses = " + misses
+				+ String.format(", hit ratio = %.4f", total == 0 ? 0. : (double) hits / total);
+	}
+}
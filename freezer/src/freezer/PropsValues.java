@@ -75,14 +75,14 @@ public class PropsValues {
 		}
 			
 		
-		this.alpha_n = TEProps.getIntAve(props.T_n, props.alpha_n, T0, T1);
-		this.alpha_p = TEProps.getIntAve(props.T_p, props.alpha_p, T0, T1);
+		this.alpha_n = TEProps.getIntAve(props.T_n, props.alpha_n, props.intAlpha_n, T0, T1);
+		this.alpha_p = TEProps.getIntAve(props.T_p, props.alpha_p, props.intAlpha_p, T0, T1);
 		this.alpha = this.alpha_n + this.alpha_p;
-		this.sigma_n = TEProps.getIntAve(props.T_n, props.sigma_n, T0, T1);
-		this.sigma_p = TEProps.getIntAve(props.T_p, props.sigma_p, T0, T1);
+		this.sigma_n = TEProps.getIntAve(props.T_n, props.sigma_n, props.intSigma_n, T0, T1);
+		this.sigma_p = TEProps.getIntAve(props.T_p, props.sigma_p, props.intSigma_p, T0, T1);
 		this.sigma = (this.sigma_n + this.sigma_p) / 2.;
-		this.lambda_n = TEProps.getIntAve(props.T_n, props.lambda_n, T0, T1);
-		this.lambda_p = TEProps.getIntAve(props.T_p, props.lambda_p, T0, T1);
+		this.lambda_n = TEProps.getIntAve(props.T_n, props.lambda_n, props.intLambda_n, T0, T1);
+		this.lambda_p = TEProps.getIntAve(props.T_p, props.lambda_p, props.intLambda_p, T0, T1);
 		this.lambda = (this.lambda_n + this.lambda_p) / 2.;
 		this.z = this.alpha * this.alpha 
 				/ Math.pow(Math.sqrt(this.lambda_n/this.sigma_n) + 
@@ -90,6 +90,27 @@ public class PropsValues {
 		
 		this.intervalCheck = intervalCheck;
 	}
+	/***
+	 * Seebek coefficient (n + p) averaged over [T0, T1], V/K
+	 */
+	static double getAlpha(final TEProps props, final double T0, final double T1) {
+		return TEProps.getIntAve(props.T_n, props.alpha_n, props.intAlpha_n, T0, T1) 
+				+ TEProps.getIntAve(props.T_p, props.alpha_p, props.intAlpha_p, T0, T1);
+	}
+	/***
+	 * Electrical conductivity (mean of n and p) averaged over [T0, T1], 1/Ohm/m
+	 */
+	static double getSigma(final TEProps props, final double T0, final double T1) {
+		return (TEProps.getIntAve(props.T_n, props.sigma_n, props.intSigma_n, T0, T1) 
+				+ TEProps.getIntAve(props.T_p, props.sigma_p, props.intSigma_p, T0, T1)) / 2.;
+	}
+	/***
+	 * Thermal conductivity (mean of n and p) averaged over [T0, T1], W/m/K
+	 */
+	static double getLambda(final TEProps props, final double T0, final double T1) {
+		return (TEProps.getIntAve(props.T_n, props.lambda_n, props.intLambda_n, T0, T1) 
+				+ TEProps.getIntAve(props.T_p, props.lambda_p, props.intLambda_p, T0, T1)) / 2.;
+	}
 	@Override
 	public String toString() {
 		String str = "" +
@@ -0,0 +1,37 @@
+package freezer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import freezer.TECalcRes.NormalizationType;
+
+/***
+ * Destination of printed results: a table per {@link NormalizationType}<br>
+ * Row values are Double, Boolean or String, row 0 is the header
+ */
+interface ResultsWriter extends Closeable {
+	public void writeHeader(NormalizationType type, ArrayList<Object> vals) throws IOException;
+
+	public void writeRow(NormalizationType type, int rowN, ArrayList<Object> vals) throws IOException;
+
+	/***
+	 * Single values of the run (settling time, events etc.), written once before close
+	 */
+	public void writeSummary(Map<String, Object> summary) throws IOException;
+
+	/***
+	 * Additional named table (e.g. "Performance"), written once before close, first row is the header
+	 */
+	public void writeTable(String name, List<ArrayList<Object>> rows) throws IOException;
+
+	/***
+	 * Writes buffered rows to the storage device (before a {@link Checkpoint})
+	 * @return output position to resume appending from, empty - results are written at close only
+	 */
+	public default long[] sync() throws IOException {
+		return new long[0];
+	}
+}
@@ -0,0 +1,79 @@
+package freezer;
+
+/***
+ * Steady state detection for transient runs<br>
+ * System is settled when max temperature rate and stored heat rate (energy residual)
+ * of every step within a sliding time window are below thresholds.
+ * Settling time - the window start
+ */
+class SettleMonitor {
+	/***
+	 * max temperature rate threshold, K/s
+	 */
+	private final double rateTolerance;
+	/***
+	 * stored heat rate threshold, W (NaN - not checked)
+	 */
+	private final double residualTolerance;
+	/***
+	 * window, s
+	 */
+	private final double window;
+
+	/***
+	 * time all steps since are below thresholds, s (NaN - last step is not)
+	 */
+	private double since = Double.NaN;
+	private double settlingTime = Double.NaN;
+
+	/***
+	 * @param rateTolerance max temperature rate threshold, K/s
+	 * @param residualTolerance stored heat rate threshold, W (NaN - not checked)
+	 * @param window window, s
+	 */
+	public SettleMonitor(final double rateTolerance, final double residualTolerance, final double window) {
+		this.rateTolerance = rateTolerance;
+		this.residualTolerance = residualTolerance;
+		this.window = window;
+	}
+
+	/***
+	 * Checks the last step of the engine
+	 * @param time time at the end of the step, s
+	 * @return true if settled
+	 */
+	public boolean update(final double time, final StepEngine engine) {
+		boolean ok = engine.getMaxRate() <= rateTolerance
+				&& (Double.isNaN(residualTolerance) || Math.abs(engine.getStorageRate()) <= residualTolerance);
+		if (!ok) {
+			since = Double.NaN;
+			return false;
+		}
+		if (Double.isNaN(since)) {
+			since = time;
+		}
+		if (time - since >= window) {
+			settlingTime = since;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isSettled() {
+		return !Double.isNaN(settlingTime);
+	}
+	/***
+	 * @return settling time, s (NaN - not settled)
+	 */
+	public double getSettlingTime() {
+		return settlingTime;
+	}
+
+	@Override
+	public String toString() {
+		return "Settle monitor: rate < " + rateTolerance + " K/s"
+				+ (Double.isNaN(residualTolerance) ? "" : ", residual < " + residualTolerance + " W")
+				+ ", window = " + window + " s, "
+				+ (isSettled() ? "settled at " + settlingTime + " s" : "not settled");
+	}
+}
@@ -0,0 +1,142 @@
+package freezer;
+
+/***
+ * Direct steady state solver<br>
+ * Left block (inner fluid up to inner junction) has no heat exchange with ambient, so at steady state
+ * it is isothermal and its junction heat flow is zero. Right block is linear for known junction heat flow.<br>
+ * Unknowns - junction temperatures x = (TinnerJunct, TouterJunct), residuals:<br>
+ * f0 = heat flow into left block, W<br>
+ * f1 = outer junction temperature from right block steady solve - TouterJunct, K<br>
+ * Solved by Newton with finite difference jacobian and step halving,
+ * current in voltage mode is consistent with junction temperatures at every iteration
+ */
+class SteadySolver {
+	private static final double tolerance = 1e-9;
+	private static final int maxIterations = 50;
+	private static final int maxHalvings = 20;
+	/***
+	 * finite difference jacobian step, K
+	 */
+	private static final double delta = 1e-4;
+
+	private final StepEngine engine;
+	private final Geom geom;
+	private final Conditions cond;
+
+	private final int Nlayers_mod;
+	private final int xLayerInner;
+	private final int xLayerOuter;
+	/***
+	 * steady state temperatures
+	 */
+	private final double[] layerT_mod;
+	/**
+	 * solver buffers
+	 */
+	private final double[] zero;
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final double[] d;
+	private final double[] cp;
+	private final double[] dp;
+
+	private final double[] f = new double[2];
+	private int iterations;
+	private long solves;
+	private double residualLeft;
+	private double residualRight;
+
+	/***
+	 * @param engine engine the steady state is set to
+	 */
+	public SteadySolver(final StepEngine engine, final Geom geom, final Conditions cond) {
+		this.engine = engine;
+		this.geom = geom;
+		this.cond = cond;
+		Nlayers_mod = geom.Nlayers - 1;
+		xLayerInner = geom.Xlayer;
+		xLayerOuter = geom.Xlayer + 1;
+		layerT_mod = new double[Nlayers_mod];
+		zero = new double[Nlayers_mod];
+		a = new double[Nlayers_mod];
+		b = new double[Nlayers_mod];
+		c = new double[Nlayers_mod];
+		d = new double[Nlayers_mod];
+		cp = new double[Nlayers_mod];
+		dp = new double[Nlayers_mod];
+	}
+
+	/***
+	 * Solves steady state and sets it to the engine
+	 * @throws InputDataException if Newton does not converge
+	 */
+	public void solve() throws InputDataException {
+		double x0 = cond.Tinner;
+		double x1 = cond.Touter;
+		double norm = eval(x0, x1);
+		for (iterations = 0; norm > tolerance; iterations++) {
+			if (iterations >= maxIterations) {
+				throw new InputDataException("Steady state not converged: " + this);
+			}
+			double f0 = f[0];
+			double f1 = f[1];
+			eval(x0 + delta, x1);
+			double j00 = (f[0] - f0) / delta;
+			double j10 = (f[1] - f1) / delta;
+			eval(x0, x1 + delta);
+			double j01 = (f[0] - f0) / delta;
+			double j11 = (f[1] - f1) / delta;
+			double det = j00 * j11 - j01 * j10;
+			double dx0 = (-f0 * j11 + f1 * j01) / det;
+			double dx1 = (-f1 * j00 + f0 * j10) / det;
+
+			double step = 1.;
+			double next = eval(x0 + dx0, x1 + dx1);
+			for (int k = 0; !(next < norm) && k < maxHalvings; k++) {
+				step /= 2.;
+				next = eval(x0 + step * dx0, x1 + step * dx1);
+			}
+			x0 += step * dx0;
+			x1 += step * dx1;
+			norm = next;
+		}
+		eval(x0, x1);
+		for (int i = 0; i <= xLayerInner; i++) {
+			layerT_mod[i] = x0;
+		}
+		engine.setState(layerT_mod, true);
+	}
+
+	/***
+	 * Evaluates residuals into f, right block steady temperatures into layerT_mod
+	 * @return residual norm, K (left block heat flow is scaled by semiconductor thermal resistance)
+	 */
+	private double eval(final double TinnerJunct, final double TouterJunct) {
+		engine.evalAt(TinnerJunct, TouterJunct);
+		double I = engine.getI();
+		ThermalState.assemble(geom, cond, zero, 0., I, engine.getQc(), engine.getQh(), 1., a, b, c, d);
+		TridiagonalSolver.solve(a, b, c, d, layerT_mod, xLayerOuter, Nlayers_mod - 1, cp, dp);
+		solves++;
+
+		f[0] = I > 0. ? -engine.getQc() : engine.getQh();
+		f[1] = layerT_mod[xLayerOuter] - TouterJunct;
+		residualLeft = f[0];
+		residualRight = f[1];
+		double norm = Math.max(Math.abs(f[0] * engine.getRh_semi()), Math.abs(f[1]));
+		return Double.isNaN(norm) ? Double.POSITIVE_INFINITY : norm;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+	public long getSolves() {
+		return solves;
+	}
+
+	@Override
+	public String toString() {
+		return "Steady state: iterations = " + iterations + ", solves = " + solves
+				+ ", residual: left block = " + residualLeft + " W, outer junction = " + residualRight + " K";
+	}
+}
@@ -0,0 +1,728 @@
+package freezer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/***
+ * In-place time stepping engine<br>
+ * All per step data lives in preallocated primitive buffers,
+ * {@link TECalcRes} and {@link ThermalState} are built only when a row is printed<br>
+ * Time schemes: implicit Euler (1st order) or variable step BDF2 (2nd order, see {@link #step(double)}),
+ * current and junction heat flows are taken from the beginning of the step or, with implicit coupling,
+ * iterated to the end of the step temperatures (see {@link #solveImplicit(double, double)})
+ */
+class StepEngine {
+	/***
+	 * Current switch-on step, s
+	 */
+	static final double startStep = 1. / 10000.;
+	/***
+	 * BDF2 zero-stability limit for step ratio dt / dtPrev
+	 */
+	static final double maxStepRatio = 1. + Math.sqrt(2.);
+	/***
+	 * Implicit coupling junction temperatures tolerance, K
+	 */
+	static final double implicitTolerance = 1e-9;
+	/***
+	 * Implicit coupling finite difference jacobian step, K
+	 */
+	private static final double implicitDelta = 1e-4;
+	private static final int implicitMaxIterations = 30;
+	private static final int implicitMaxHalvings = 20;
+	
+	private final Geom geom;
+	private final Conditions cond;
+	private final TEProps props;
+
+	private final int Nlayers_mod;
+	private final int xLayerInner;
+	private final int xLayerOuter;
+	/***
+	 * Semiconductor layer resistance per unit of resistivity, see {@link PrepareConsts#getShapeFactor(Geom)}
+	 */
+	private final double shapeFactor;
+
+	/***
+	 * temperatures array, see {@link ThermalState#layerT_mod}
+	 */
+	public final double[] layerT_mod;
+	/***
+	 * temperatures at the beginning of the last step
+	 */
+	private final double[] layerT_old;
+	/***
+	 * BDF2 history term buffer
+	 */
+	private final double[] layerT_hist;
+	/**
+	 * solver buffers
+	 */
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final double[] d;
+	private final double[] cp;
+	private final double[] dp;
+
+	/***
+	 * junction temperatures the last step was calculated with, 'C
+	 */
+	private double TinnerJunct;
+	private double TouterJunct;
+	/***
+	 * current of the last step, A
+	 */
+	private double I;
+	/**
+	 * averaged properties and resistances of the last step, see {@link PrepareConsts}
+	 */
+	private double alpha;
+	private double Rh_semi;
+	private double Re_semi;
+	private double Re_inner;
+	private double Re_outer;
+	/***
+	 * heat flows of the last step (per ring), W, see {@link TECalcRes}
+	 */
+	private double Qc;
+	private double Qh;
+	private double Pe;
+
+	private boolean leftBalanceOk;
+	private boolean rightBalanceOk;
+
+	/***
+	 * second order scheme is on
+	 */
+	private final boolean bdf2;
+	/***
+	 * current and junction heat flows are consistent with the end of step temperatures
+	 */
+	private final boolean implicit;
+	/***
+	 * implicit coupling residuals (end of step junction temperatures - iterated ones), K
+	 */
+	private final double[] g = new double[2];
+	private long implicitIterations;
+	private long implicitFailures;
+	/***
+	 * previous step data for BDF2 (layerT_old holds temperatures before the previous step)
+	 */
+	private boolean hasHistory;
+	private double dtPrev;
+	private double IPrev;
+	private double QcPrev;
+	private double QhPrev;
+	
+	/***
+	 * optional properties cache, null - exact evaluation every step
+	 */
+	private final PropsCache cache;
+	/***
+	 * cached constants of the last step
+	 */
+	private PrepareConsts pc;
+	
+	/**
+	 * saved state block, see {@link #saveState()}
+	 */
+	private final double[] layerT_saved;
+	private final double[] layerT_oldSaved;
+	private final double[] constsSaved = new double[11];
+	private boolean hasHistorySaved;
+	private PrepareConsts pcSaved;
+	
+	/***
+	 * inner fluid flow through the ring (axial model, see {@link AxialChain}),
+	 * mass flow * heat capacity per ring, W/K (0 - no flow) and inlet temperature, 'C
+	 */
+	private double flowCp;
+	private double Tinlet;
+	/***
+	 * current set from outside (rings network solve, see {@link AxialChain}), NaN - not set
+	 */
+	private double networkI = Double.NaN;
+	/***
+	 * module wiring: batteries and rings connection, see {@link ElectricalNetwork}
+	 */
+	private final ElectricalNetwork.Connection batteries;
+	private final ElectricalNetwork.Connection rings;
+	
+	/***
+	 * linear solves count
+	 */
+	private long solves;
+	private PhaseProfiler profiler = PhaseProfiler.OFF;
+
+	public StepEngine(final Geom geom, final Conditions cond, final TEProps props) {
+		this.geom = geom;
+		this.cond = cond;
+		this.props = props;
+
+		Nlayers_mod = geom.Nlayers - 1;
+		xLayerInner = geom.Xlayer;
+		xLayerOuter = geom.Xlayer + 1;
+		shapeFactor = PrepareConsts.getShapeFactor(geom);
+		cache = Main.CACHE_TOLERANCE > 0. ? new PropsCache(Main.CACHE_TOLERANCE, Main.CACHE_SIZE) : null;
+		bdf2 = Main.SCHEME_BDF2.equals(Main.SCHEME);
+		implicit = Main.IMPLICIT;
+		batteries = ElectricalNetwork.Connection.get(Main.WIRING.charAt(0));
+		rings = ElectricalNetwork.Connection.get(Main.WIRING.charAt(1));
+
+		layerT_mod = new double[Nlayers_mod];
+		layerT_old = new double[Nlayers_mod];
+		layerT_hist = new double[Nlayers_mod];
+		layerT_saved = new double[Nlayers_mod];
+		layerT_oldSaved = new double[Nlayers_mod];
+		a = new double[Nlayers_mod];
+		b = new double[Nlayers_mod];
+		c = new double[Nlayers_mod];
+		d = new double[Nlayers_mod];
+		cp = new double[Nlayers_mod];
+		dp = new double[Nlayers_mod];
+
+		layerT_mod[0] = cond.Tinner;
+		for (int i = 1; i < Nlayers_mod; i++) {
+			layerT_mod[i] = cond.Ttem_init;
+		}
+		evalConsts(cond.Ttem_init, cond.Ttem_init);
+	}
+
+	/***
+	 * Switches current on with a short {@link #startStep}
+	 */
+	public void start() {
+		step(startStep);
+	}
+
+	/***
+	 * Makes one implicit step: current and junction heat flows are taken
+	 * from the temperatures at the beginning of the step<br>
+	 * BDF2 with step ratio w = dt / dtPrev:<br>
+	 * <code>a0 * T(n+1) - (a1 * T(n) - a2 * T(n-1)) = dt / Cp * (sources)</code>,
+	 * a0 = (1 + 2w) / (1 + w), a1 = 1 + w, a2 = w^2 / (1 + w)<br>
+	 * Junction heat flows are extrapolated to the end of the step: Q* = (1 + w) * Q(n) - w * Q(n-1),
+	 * so the explicit part keeps second order too.
+	 * The first step, steps after current sign change and steps with w > {@link #maxStepRatio} are implicit Euler<br>
+	 * With implicit coupling the heat flows are not extrapolated, they are taken at the end of the step
+	 * @param dt time step, s
+	 */
+	public void step(final double dt) {
+		I = nextI();
+		evalConsts(layerT_mod[xLayerInner], layerT_mod[xLayerOuter]);
+		evalFlows();
+
+		double capMult = 1.;
+		double QcStep = Qc;
+		double QhStep = Qh;
+		double w = hasHistory ? dt / dtPrev : 0.;
+		if (bdf2 && hasHistory && IPrev * I > 0. && w <= maxStepRatio) {
+			double a1 = 1. + w;
+			double a2 = w * w / (1. + w);
+			capMult = (1. + 2. * w) / (1. + w);
+			for (int i = 0; i < Nlayers_mod; i++) {
+				layerT_hist[i] = a1 * layerT_mod[i] - a2 * layerT_old[i];
+			}
+			QcStep = (1. + w) * Qc - w * QcPrev;
+			QhStep = (1. + w) * Qh - w * QhPrev;
+		} else {
+			System.arraycopy(layerT_mod, 0, layerT_hist, 0, Nlayers_mod);
+		}
+
+		System.arraycopy(layerT_mod, 0, layerT_old, 0, Nlayers_mod);
+		if (implicit) {
+			solveImplicit(dt, capMult);
+			QcStep = Qc;
+			QhStep = Qh;
+		} else {
+			solveStep(dt, capMult, QcStep, QhStep);
+		}
+
+		leftBalanceOk = ThermalState.isLeftBalanceOk(geom, layerT_hist, capMult, layerT_mod, I, QcStep, QhStep, dt,
+				flowCp * (Tinlet - layerT_mod[0]));
+		rightBalanceOk = ThermalState.isRightBalanceOk(geom, cond, layerT_hist, capMult, layerT_mod, I, QcStep, QhStep, dt);
+
+		hasHistory = true;
+		dtPrev = dt;
+		IPrev = I;
+		QcPrev = Qc;
+		QhPrev = Qh;
+	}
+
+	/***
+	 * Assembles and solves the step into layerT_mod
+	 */
+	private void solveStep(final double dt, final double capMult, final double QcStep, final double QhStep) {
+		long t = profiler.start();
+		ThermalState.assemble(geom, cond, layerT_hist, capMult, I, QcStep, QhStep, dt, a, b, c, d);
+		if (flowCp > 0.) {
+			ThermalState.addInletFlow(flowCp, Tinlet, dt, b, d);
+		}
+		ThermalState.solve(geom, a, b, c, d, layerT_mod, cp, dp);
+		solves++;
+		profiler.stop(PhaseProfiler.Phase.SOLVE, t);
+	}
+
+	/***
+	 * Implicit current - temperature coupling: Newton on the end of step junction temperatures x,<br>
+	 * <code>g(x) = junction temperatures of the step solved with current and heat flows evaluated at x - x = 0</code>,<br>
+	 * finite difference jacobian and step halving (the same way as {@link SteadySolver}).
+	 * Starts from the beginning of the step temperatures, ends with the step solved at the last x
+	 * (not converged steps are counted, the best iterate is kept)
+	 * @param dt time step, s
+	 * @param capMult capacity multiplier, history term is in layerT_hist
+	 */
+	private void solveImplicit(final double dt, final double capMult) {
+		double x0 = layerT_mod[xLayerInner];
+		double x1 = layerT_mod[xLayerOuter];
+		double norm = evalImplicit(x0, x1, dt, capMult);
+		int iterations = 0;
+		while (norm > implicitTolerance) {
+			if (iterations >= implicitMaxIterations) {
+				implicitFailures++;
+				break;
+			}
+			iterations++;
+			double g0 = g[0];
+			double g1 = g[1];
+			evalImplicit(x0 + implicitDelta, x1, dt, capMult);
+			double j00 = (g[0] - g0) / implicitDelta;
+			double j10 = (g[1] - g1) / implicitDelta;
+			evalImplicit(x0, x1 + implicitDelta, dt, capMult);
+			double j01 = (g[0] - g0) / implicitDelta;
+			double j11 = (g[1] - g1) / implicitDelta;
+			double det = j00 * j11 - j01 * j10;
+			double dx0 = (-g0 * j11 + g1 * j01) / det;
+			double dx1 = (-g1 * j00 + g0 * j10) / det;
+
+			double step = 1.;
+			double next = evalImplicit(x0 + dx0, x1 + dx1, dt, capMult);
+			for (int k = 0; !(next < norm) && k < implicitMaxHalvings; k++) {
+				step /= 2.;
+				next = evalImplicit(x0 + step * dx0, x1 + step * dx1, dt, capMult);
+			}
+			if (!(next < norm)) {
+				implicitFailures++;
+				evalImplicit(x0, x1, dt, capMult);
+				break;
+			}
+			x0 += step * dx0;
+			x1 += step * dx1;
+			norm = next;
+		}
+		implicitIterations += iterations;
+	}
+
+	/***
+	 * Solves the step with current and junction heat flows evaluated at x
+	 * @return residual norm, K
+	 */
+	private double evalImplicit(final double x0, final double x1, final double dt, final double capMult) {
+		evalAt(x0, x1);
+		solveStep(dt, capMult, Qc, Qh);
+		g[0] = layerT_mod[xLayerInner] - x0;
+		g[1] = layerT_mod[xLayerOuter] - x1;
+		double norm = Math.max(Math.abs(g[0]), Math.abs(g[1]));
+		return Double.isNaN(norm) ? Double.POSITIVE_INFINITY : norm;
+	}
+
+	/***
+	 * @return time scheme order (local error ~ dt^(order + 1))
+	 */
+	public int getOrder() {
+		return bdf2 ? 2 : 1;
+	}
+
+	/***
+	 * Remembers everything the next step depends on (temperatures, last step constants and BDF2 history)
+	 */
+	public void saveState() {
+		System.arraycopy(layerT_mod, 0, layerT_saved, 0, Nlayers_mod);
+		constsSaved[0] = TinnerJunct;
+		constsSaved[1] = TouterJunct;
+		constsSaved[2] = alpha;
+		constsSaved[3] = Rh_semi;
+		constsSaved[4] = Re_semi;
+		constsSaved[5] = Re_inner;
+		constsSaved[6] = Re_outer;
+		System.arraycopy(layerT_old, 0, layerT_oldSaved, 0, Nlayers_mod);
+		constsSaved[7] = dtPrev;
+		constsSaved[8] = IPrev;
+		constsSaved[9] = QcPrev;
+		constsSaved[10] = QhPrev;
+		hasHistorySaved = hasHistory;
+		pcSaved = pc;
+	}
+	
+	/***
+	 * Returns to the state remembered by {@link #saveState()}
+	 */
+	public void restoreState() {
+		System.arraycopy(layerT_saved, 0, layerT_mod, 0, Nlayers_mod);
+		TinnerJunct = constsSaved[0];
+		TouterJunct = constsSaved[1];
+		alpha = constsSaved[2];
+		Rh_semi = constsSaved[3];
+		Re_semi = constsSaved[4];
+		Re_inner = constsSaved[5];
+		Re_outer = constsSaved[6];
+		System.arraycopy(layerT_oldSaved, 0, layerT_old, 0, Nlayers_mod);
+		dtPrev = constsSaved[7];
+		IPrev = constsSaved[8];
+		QcPrev = constsSaved[9];
+		QhPrev = constsSaved[10];
+		hasHistory = hasHistorySaved;
+		pc = pcSaved;
+	}
+
+	/***
+	 * Writes everything the next steps depend on and the counters (see {@link Checkpoint}),
+	 * properties cache is not written
+	 */
+	void writeState(final DataOutput out) throws IOException {
+		out.writeInt(Nlayers_mod);
+		for (int i = 0; i < Nlayers_mod; i++) {
+			out.writeDouble(layerT_mod[i]);
+			out.writeDouble(layerT_old[i]);
+		}
+		double[] vals = {TinnerJunct, TouterJunct, I, alpha, Rh_semi, Re_semi, Re_inner, Re_outer,
+				Qc, Qh, Pe, dtPrev, IPrev, QcPrev, QhPrev};
+		for (double v : vals) {
+			out.writeDouble(v);
+		}
+		out.writeBoolean(leftBalanceOk);
+		out.writeBoolean(rightBalanceOk);
+		out.writeBoolean(hasHistory);
+		out.writeLong(solves);
+		out.writeLong(implicitIterations);
+		out.writeLong(implicitFailures);
+	}
+
+	/***
+	 * Reads state written by {@link #writeState(DataOutput)}
+	 * @throws IOException layers count differs
+	 */
+	void readState(final DataInput in) throws IOException {
+		int n = in.readInt();
+		if (n != Nlayers_mod) {
+			throw new IOException("Checkpoint layers count " + n + " differs from input " + Nlayers_mod);
+		}
+		for (int i = 0; i < Nlayers_mod; i++) {
+			layerT_mod[i] = in.readDouble();
+			layerT_old[i] = in.readDouble();
+		}
+		TinnerJunct = in.readDouble();
+		TouterJunct = in.readDouble();
+		I = in.readDouble();
+		alpha = in.readDouble();
+		Rh_semi = in.readDouble();
+		Re_semi = in.readDouble();
+		Re_inner = in.readDouble();
+		Re_outer = in.readDouble();
+		Qc = in.readDouble();
+		Qh = in.readDouble();
+		Pe = in.readDouble();
+		dtPrev = in.readDouble();
+		IPrev = in.readDouble();
+		QcPrev = in.readDouble();
+		QhPrev = in.readDouble();
+		leftBalanceOk = in.readBoolean();
+		rightBalanceOk = in.readBoolean();
+		hasHistory = in.readBoolean();
+		solves = in.readLong();
+		implicitIterations = in.readLong();
+		implicitFailures = in.readLong();
+		pc = cache != null ? cache.get(TinnerJunct, TouterJunct, geom, props) : null;
+	}
+
+	/***
+	 * Evaluates current and junction heat flows at given junction temperatures,
+	 * in voltage mode current is consistent with them (see {@link SteadySolver})
+	 */
+	void evalAt(final double TinnerJunct, final double TouterJunct) {
+		evalConsts(TinnerJunct, TouterJunct);
+		I = nextI();
+		evalFlows();
+	}
+
+	/***
+	 * Evaluates junction heat flows at the current temperatures with the last step current,
+	 * engine state is not changed
+	 * @param out {Qc, Pe} per ring, W
+	 */
+	void evalFlowsNow(final double[] out) {
+		double TinnerJunct = this.TinnerJunct;
+		double TouterJunct = this.TouterJunct;
+		double alpha = this.alpha;
+		double Rh_semi = this.Rh_semi;
+		double Re_semi = this.Re_semi;
+		double Re_inner = this.Re_inner;
+		double Re_outer = this.Re_outer;
+		double Qc = this.Qc;
+		double Qh = this.Qh;
+		double Pe = this.Pe;
+		PrepareConsts pc = this.pc;
+
+		evalConsts(layerT_mod[xLayerInner], layerT_mod[xLayerOuter]);
+		evalFlows();
+		out[0] = this.Qc;
+		out[1] = this.Pe;
+
+		this.TinnerJunct = TinnerJunct;
+		this.TouterJunct = TouterJunct;
+		this.alpha = alpha;
+		this.Rh_semi = Rh_semi;
+		this.Re_semi = Re_semi;
+		this.Re_inner = Re_inner;
+		this.Re_outer = Re_outer;
+		this.Qc = Qc;
+		this.Qh = Qh;
+		this.Pe = Pe;
+		this.pc = pc;
+	}
+
+	/***
+	 * Sets temperatures (e.g. steady state) and evaluates current and junction heat flows for them,
+	 * next step starts without BDF2 history
+	 * @param layerT_mod temperatures, see {@link ThermalState#layerT_mod}
+	 * @param balanceOk energy balance flags to report
+	 */
+	void setState(final double[] layerT_mod, final boolean balanceOk) {
+		System.arraycopy(layerT_mod, 0, this.layerT_mod, 0, Nlayers_mod);
+		evalAt(layerT_mod[xLayerInner], layerT_mod[xLayerOuter]);
+		leftBalanceOk = balanceOk;
+		rightBalanceOk = balanceOk;
+		hasHistory = false;
+	}
+
+	/***
+	 * Current for the next step, A<br>
+	 * Identical rings, module voltage or current is divided according to the wiring,
+	 * in voltage mode uses previous step junction temperatures (or {@link #setNetworkI(double)} current)
+	 */
+	private double nextI() {
+		return getI(TinnerJunct, TouterJunct, alpha, Re_semi + Re_inner + Re_outer);
+	}
+
+	/***
+	 * @param TinnerJunct junction temperatures, 'C
+	 * @param TouterJunct
+	 * @param alpha Seebeck coefficient at them
+	 * @param Re total electrical resistance at them per ring, Ohm
+	 * @return current per ring, A, see {@link #nextI()}
+	 */
+	private double getI(final double TinnerJunct, final double TouterJunct, final double alpha, final double Re) {
+		if (!Double.isNaN(networkI)) {
+			return networkI;
+		} else if (Math.abs(cond.I) < 1e-6) {
+			double v = ElectricalNetwork.getRingV(geom, batteries, rings, cond.V);
+			return (v - alpha * (TouterJunct - TinnerJunct) * (geom.nSegmentsInRing / 2.)) / Re;
+		} else {
+			return ElectricalNetwork.getRingI(geom, batteries, rings, cond.I);
+		}
+	}
+
+	/***
+	 * Same as {@link PrepareConsts} without allocations (or taken from cache)
+	 */
+	private void evalConsts(final double TinnerJunct, final double TouterJunct) {
+		this.TinnerJunct = TinnerJunct;
+		this.TouterJunct = TouterJunct;
+		long t = profiler.start();
+		if (cache != null) {
+			pc = cache.get(TinnerJunct, TouterJunct, geom, props);
+			alpha = pc.propsVals.alpha;
+			Re_semi = pc.Re_semi;
+			Rh_semi = pc.Rh_semi;
+			Re_inner = pc.Re_inner;
+			Re_outer = pc.Re_outer;
+			profiler.stop(PhaseProfiler.Phase.PROPS, t);
+			return;
+		}
+		double Tcold = Math.min(TinnerJunct, TouterJunct);
+		double Thot = Math.max(TinnerJunct, TouterJunct);
+
+		alpha = PropsValues.getAlpha(props, Tcold, Thot);
+		Re_semi = shapeFactor / PropsValues.getSigma(props, Tcold, Thot)
+				* geom.nSegmentsInRing * geom.nSegmentsInRing;
+		Rh_semi = shapeFactor / PropsValues.getLambda(props, Tcold, Thot);
+		Re_inner = PrepareConsts.getRe_inner(geom, TinnerJunct);
+		Re_outer = PrepareConsts.getRe_outer(geom, TouterJunct);
+		profiler.stop(PhaseProfiler.Phase.PROPS, t);
+	}
+
+	/***
+	 * Same as {@link TECalcRes} heat flows without allocations
+	 */
+	private void evalFlows() {
+		double Tcold;
+		double Thot;
+		if (I > 0) {
+			Tcold = TinnerJunct;
+			Thot = TouterJunct;
+		} else {
+			Tcold = TouterJunct;
+			Thot = TinnerJunct;
+		}
+		double QjouleInnerJunct = Re_inner * I * I;
+		double QjouleOuterJunct = Re_outer * I * I;
+		double xQpeltier = alpha * (geom.nSegmentsInRing / 2.) * Main.CtoK(Tcold) * Math.abs(I);
+		double xQthermCond = (Thot - Tcold) / Rh_semi;
+		double xQjoule = Re_semi * I * I / 2.;
+
+		Qc = (xQpeltier - xQthermCond - xQjoule) - QjouleInnerJunct;
+		Pe = (Re_semi * I * I + alpha * I * (TouterJunct - TinnerJunct) * (geom.nSegmentsInRing / 2.))
+				+ QjouleInnerJunct + QjouleOuterJunct;
+		Qh = (xQpeltier - xQthermCond - xQjoule) + Pe - QjouleInnerJunct;
+	}
+
+	/***
+	 * @return junction heat flows of the last step (allocates, for printing only)
+	 */
+	public TECalcRes getCalcRes() {
+		long t = profiler.start();
+		TECalcRes cr = cache != null 
+				? new TECalcRes(TinnerJunct, TouterJunct, I, geom, pc)
+				: new TECalcRes(TinnerJunct, TouterJunct, I, geom, props);
+		profiler.stop(PhaseProfiler.Phase.PROPS, t);
+		return cr;
+	}
+
+	/***
+	 * @param layerT_mod temperatures (e.g. interpolated between steps, see {@link AdaptiveStepper#interpolate(double, double[])})
+	 * @return junction heat flows at the temperatures with the current for them,
+	 * engine state is not changed (allocates, for printing only)
+	 */
+	public TECalcRes getCalcRes(final double[] layerT_mod) {
+		long t = profiler.start();
+		double TinnerJunct = layerT_mod[xLayerInner];
+		double TouterJunct = layerT_mod[xLayerOuter];
+		PrepareConsts pc = cache != null 
+				? cache.get(TinnerJunct, TouterJunct, geom, props)
+				: new PrepareConsts(TinnerJunct, TouterJunct, geom, props);
+		double I = getI(TinnerJunct, TouterJunct, pc.propsVals.alpha, pc.Re_semi + pc.Re_inner + pc.Re_outer);
+		TECalcRes cr = new TECalcRes(TinnerJunct, TouterJunct, I, geom, pc);
+		profiler.stop(PhaseProfiler.Phase.PROPS, t);
+		return cr;
+	}
+
+	/***
+	 * @return state at the end of the last step (allocates, for printing only)
+	 */
+	public ThermalState getThermalState() {
+		return getThermalState(layerT_mod);
+	}
+
+	/***
+	 * @param layerT_mod temperatures (e.g. interpolated between steps) with the last step balance flags
+	 * @return state (allocates, for printing only)
+	 */
+	public ThermalState getThermalState(final double[] layerT_mod) {
+		return new ThermalState(geom, layerT_mod, leftBalanceOk, rightBalanceOk);
+	}
+
+	/***
+	 * Inner fluid flow through the ring for the next steps
+	 * @param flowCp mass flow * heat capacity per ring, W/K
+	 * @param Tinlet fluid temperature at the ring inlet, 'C
+	 */
+	void setFlow(final double flowCp, final double Tinlet) {
+		this.flowCp = flowCp;
+		this.Tinlet = Tinlet;
+	}
+
+	/***
+	 * @param I current for the next steps, A (NaN - own current, see {@link #nextI()})
+	 */
+	void setNetworkI(final double I) {
+		networkI = I;
+	}
+
+	/***
+	 * @return thermo EMF with the last step constants per ring, V
+	 */
+	double getEmf() {
+		return alpha * (TouterJunct - TinnerJunct) * (geom.nSegmentsInRing / 2.);
+	}
+
+	/***
+	 * @return total electrical resistance with the last step constants per ring, Ohm
+	 */
+	double getRe() {
+		return Re_semi + Re_inner + Re_outer;
+	}
+
+	/***
+	 * @param profiler properties evaluation and linear solve timing
+	 */
+	public void setProfiler(final PhaseProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/***
+	 * @return properties cache or null
+	 */
+	public PropsCache getCache() {
+		return cache;
+	}
+	/***
+	 * @return implicit coupling Newton iterations count
+	 */
+	public long getImplicitIterations() {
+		return implicitIterations;
+	}
+
+	/***
+	 * @return implicit coupling not converged steps count
+	 */
+	public long getImplicitFailures() {
+		return implicitFailures;
+	}
+
+	/***
+	 * @return linear solves count (both blocks count as one)
+	 */
+	public long getSolves() {
+		return solves;
+	}
+	public double getI() {
+		return I;
+	}
+	public double getQc() {
+		return Qc;
+	}
+	public double getQh() {
+		return Qh;
+	}
+	public double getPe() {
+		return Pe;
+	}
+	/***
+	 * @return max temperature rate of the last step, K/s
+	 */
+	public double getMaxRate() {
+		double max = 0.;
+		for (int i = 0; i < Nlayers_mod; i++) {
+			max = Math.max(max, Math.abs(layerT_mod[i] - layerT_old[i]));
+		}
+		return max / dtPrev;
+	}
+	/***
+	 * @return stored heat rate of the last step (energy residual of steady state), W
+	 */
+	public double getStorageRate() {
+		double sum = 0.;
+		for (int i = 0; i < Nlayers_mod; i++) {
+			sum += (layerT_mod[i] - layerT_old[i]) * geom.layerCpM_mod[i];
+		}
+		return sum / dtPrev;
+	}
+	public double getRh_semi() {
+		return Rh_semi;
+	}
+	public double getCOP() {
+		return Qc / Pe;
+	}
+}
@@ -0,0 +1,178 @@
+package freezer;
+
+import java.util.Arrays;
+
+/***
+ * Constant memory statistics of a value stream: count, mean and variance (Welford),
+ * min, max and quantiles (P-square estimator, Jain and Chlamtac, 1985 - five markers per quantile,
+ * exact for the first five values)<br>
+ * Not finite values are counted as failures only. Results depend on the values order
+ */
+class StreamingStats {
+	private final double[] probabilities;
+	private final P2[] quantiles;
+	private long count;
+	private long failures;
+	private double mean;
+	private double m2;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/***
+	 * @param probabilities quantile probabilities, (0, 1)
+	 */
+	public StreamingStats(final double... probabilities) {
+		this.probabilities = probabilities.clone();
+		quantiles = new P2[probabilities.length];
+		for (int i = 0; i < probabilities.length; i++) {
+			quantiles[i] = new P2(probabilities[i]);
+		}
+	}
+
+	public void add(final double x) {
+		if (!Double.isFinite(x)) {
+			failures++;
+			return;
+		}
+		count++;
+		double delta = x - mean;
+		mean += delta / count;
+		m2 += delta * (x - mean);
+		min = Math.min(min, x);
+		max = Math.max(max, x);
+		for (P2 q : quantiles) {
+			q.add(x);
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public double getMean() {
+		return count > 0 ? mean : Double.NaN;
+	}
+
+	/***
+	 * @return sample variance (n - 1)
+	 */
+	public double getVariance() {
+		return count > 1 ? m2 / (count - 1) : Double.NaN;
+	}
+
+	public double getStd() {
+		return Math.sqrt(getVariance());
+	}
+
+	public double getMin() {
+		return count > 0 ? min : Double.NaN;
+	}
+
+	public double getMax() {
+		return count > 0 ? max : Double.NaN;
+	}
+
+	public double[] getProbabilities() {
+		return probabilities.clone();
+	}
+
+	/***
+	 * @param i quantile index (see constructor)
+	 * @return quantile estimate
+	 */
+	public double getQuantile(final int i) {
+		return quantiles[i].get();
+	}
+
+	/***
+	 * P-square single quantile estimator
+	 */
+	private static class P2 {
+		private final double p;
+		/***
+		 * marker heights, actual and desired positions (1 based), desired positions increments
+		 */
+		private final double[] q = new double[5];
+		private final double[] n = new double[5];
+		private final double[] nd = new double[5];
+		private final double[] dn;
+		private int count;
+
+		private P2(final double p) {
+			this.p = p;
+			dn = new double[] {0., p / 2., p, (1. + p) / 2., 1.};
+		}
+
+		private void add(final double x) {
+			if (count < 5) {
+				q[count++] = x;
+				if (count == 5) {
+					Arrays.sort(q);
+					for (int i = 0; i < 5; i++) {
+						n[i] = i + 1;
+					}
+					nd[0] = 1.;
+					nd[1] = 1. + 2. * p;
+					nd[2] = 1. + 4. * p;
+					nd[3] = 3. + 2. * p;
+					nd[4] = 5.;
+				}
+				return;
+			}
+			count++;
+			int k;
+			if (x < q[0]) {
+				q[0] = x;
+				k = 0;
+			} else if (x >= q[4]) {
+				q[4] = x;
+				k = 3;
+			} else {
+				k = 0;
+				while (x >= q[k + 1]) {
+					k++;
+				}
+			}
+			for (int i = k + 1; i < 5; i++) {
+				n[i]++;
+			}
+			for (int i = 0; i < 5; i++) {
+				nd[i] += dn[i];
+			}
+			for (int i = 1; i < 4; i++) {
+				double d = nd[i] - n[i];
+				if ((d >= 1. && n[i + 1] - n[i] > 1.) || (d <= -1. && n[i - 1] - n[i] < -1.)) {
+					int s = d > 0. ? 1 : -1;
+					double qp = parabolic(i, s);
+					if (q[i - 1] < qp && qp < q[i + 1]) {
+						q[i] = qp;
+					} else {
+						q[i] += s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+					}
+					n[i] += s;
+				}
+			}
+		}
+
+		private double parabolic(final int i, final int s) {
+			return q[i] + s / (n[i + 1] - n[i - 1]) * (
+					(n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+					+ (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+		}
+
+		private double get() {
+			if (count == 0) {
+				return Double.NaN;
+			} else if (count <= 5) {
+				double[] sorted = Arrays.copyOf(q, count);
+				Arrays.sort(sorted);
+				return sorted[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+			}
+			return q[2];
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package freezer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/***
+ * Parameter sweep: transient run for every set of overrides from "Sweep" sheet<br>
+ * Sheet layout: first row - value names as printed to log ("I", "V", "Touter", "alphaInner", "Ttem_init", "Rcold" ...),
+ * next rows - values<br>
+ * list mode - every row is a case (blank cell - value from input sheets)<br>
+ * grid mode - every column is a list of values, cases are all combinations
+ */
+class SweepRunner {
+	public static final String sheetNameSweep = "Sweep";
+	public static final String fileSuffix = "_SWEEP.xlsx";
+
+	private final File fileIn;
+	private final boolean grid;
+	private final int threads;
+	private final double Ttarget;
+	/***
+	 * overridden value names ("Sweep" sheet header)
+	 */
+	private final ArrayList<String> names = new ArrayList<>();
+
+	/***
+	 * Single case input, read before parallel part (POI is not thread safe)
+	 */
+	private static class Case {
+		private final Map<String, Double> overrides;
+		private final Geom geom;
+		private final Conditions cond;
+
+		private Case(final Map<String, Double> overrides, final Geom geom, final Conditions cond) {
+			this.overrides = overrides;
+			this.geom = geom;
+			this.cond = cond;
+		}
+	}
+
+	/***
+	 * Final state of a case, heat flows per module
+	 */
+	static class CaseResult {
+		double[] layerT_mod;
+		double I;
+		double Qc;
+		double Pe;
+		double COP;
+		double timeToTarget = Double.NaN;
+		double settlingTime = Double.NaN;
+		double[] eventTimes;
+	}
+
+	/***
+	 * @param fileIn input workbook with "Thermoelectric", "Conditions" and "Sweep" sheets
+	 * @param grid grid (all combinations) or list mode
+	 * @param threads parallelism, 0 - available processors
+	 * @param Ttarget inner fluid target temperature, 'C (NaN - not used)
+	 */
+	public SweepRunner(final File fileIn, final boolean grid, final int threads, final double Ttarget) {
+		this.fileIn = fileIn;
+		this.grid = grid;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.Ttarget = Ttarget;
+	}
+
+	public void run() throws IOException, InputDataException {
+		String fileOutPath = Main.getOutPath(fileIn, fileSuffix);
+		ArrayList<Case> cases = new ArrayList<>();
+		TEProps teProps;
+		try (
+				FileInputStream file = new FileInputStream(fileIn);
+				Workbook workbookIn = new XSSFWorkbook(file)) {
+			FormulaEvaluator evaluator = workbookIn.getCreationHelper().createFormulaEvaluator();
+			Sheet sheetTE = getSheet(workbookIn, Main.sheetNameThermoelectric);
+			Sheet sheetCond = getSheet(workbookIn, Main.sheetNameConditions);
+			List<Map<String, Double>> overrides = readCases(new ExcelData(getSheet(workbookIn, sheetNameSweep), evaluator));
+			if (overrides.isEmpty()) {
+				throw new InputDataException("Sheet \"" + sheetNameSweep + "\" has no cases");
+			}
+			checkNames(sheetTE, sheetCond, evaluator);
+			Main.LOG.println("Sweep: " + overrides.size() + " case(s), " + threads + " thread(s)");
+			if (Main.STEADY != null || Main.ADAPTIVE_TOL > 0. || Main.AXIAL > 0 || Main.CHECKPOINT > 0. || Main.RESUME) {
+				Main.LOG.println("Sweep: cases are fixed step transients of one ring, steady state, adaptive step, axial model and checkpoints are not used");
+			}
+
+			teProps = new TEProps(new ExcelData(sheetTE, evaluator));
+			for (Map<String, Double> ov : overrides) {
+				Geom geom = new Geom(new ExcelData(sheetTE, evaluator, ov));
+				Conditions cond = new Conditions(new ExcelData(sheetCond, evaluator, ov));
+				geom.updateMargins(cond);
+				cases.add(new Case(ov, geom, cond));
+			}
+		}
+
+		long nano = System.nanoTime();
+		ArrayList<Callable<CaseResult>> tasks = new ArrayList<>();
+		for (Case c : cases) {
+			tasks.add(() -> calc(c.geom, c.cond, teProps, Ttarget));
+		}
+		ArrayList<CaseResult> results = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (Future<CaseResult> f : pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch (ExecutionException e) {
+			throw new InputDataException("Sweep case failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} finally {
+			pool.shutdownNow();
+		}
+		Main.LOG.println("Sweep finished in " + ((System.nanoTime() - nano) / 1_000_000L) + " ms");
+
+		try (
+				FileOutputStream outputStream = new FileOutputStream(fileOutPath);
+				XSSFWorkbook workbookOut = new XSSFWorkbook()) {
+			printSummary(new ExcelData(workbookOut.createSheet(sheetNameSweep), null), names, cases, results);
+			workbookOut.write(outputStream);
+		}
+	}
+
+	private static Sheet getSheet(final Workbook wb, final String name) throws InputDataException {
+		Sheet sheet = wb.getSheet(name);
+		if (sheet == null) {
+			throw new InputDataException("Sheet \"" + name + "\" not found");
+		}
+		return sheet;
+	}
+
+	/***
+	 * Reads nominal input to check that every column name is a value name as printed to log
+	 * @throws InputDataException unknown name
+	 */
+	private void checkNames(
+			final Sheet sheetTE,
+			final Sheet sheetCond,
+			final FormulaEvaluator evaluator) throws InputDataException {
+		Map<String, Double> nominal = new LinkedHashMap<>();
+		ExcelData envTE = new ExcelData(sheetTE, evaluator);
+		envTE.setReadValues(nominal);
+		ExcelData envCond = new ExcelData(sheetCond, evaluator);
+		envCond.setReadValues(nominal);
+		new Geom(envTE);
+		new Conditions(envCond);
+		for (String name : names) {
+			if (!nominal.containsKey(name)) {
+				throw new InputDataException("Unknown value name \"" + name + "\" on sheet \"" + sheetNameSweep + "\"");
+			}
+		}
+	}
+
+	/***
+	 * @return overrides for every case
+	 */
+	private List<Map<String, Double>> readCases(final ExcelData env) throws InputDataException {
+		names.clear();
+		for (int col = 0; env.cellExist(0, col); col++) {
+			names.add(env.getString(0, col));
+		}
+		ArrayList<Map<String, Double>> cases = new ArrayList<>();
+		if (grid) {
+			cases.add(new LinkedHashMap<>());
+			for (int col = 0; col < names.size(); col++) {
+				ArrayList<Map<String, Double>> next = new ArrayList<>();
+				for (int row = 1; env.cellExist(row, col); row++) {
+					double val = env.getDouble(row, col);
+					for (Map<String, Double> c : cases) {
+						Map<String, Double> n = new LinkedHashMap<>(c);
+						n.put(names.get(col), val);
+						next.add(n);
+					}
+				}
+				if (!next.isEmpty()) {
+					cases = next;
+				}
+			}
+		} else {
+			for (int row = 1; rowExist(env, row, names.size()); row++) {
+				Map<String, Double> c = new LinkedHashMap<>();
+				for (int col = 0; col < names.size(); col++) {
+					if (env.cellExist(row, col)) {
+						c.put(names.get(col), env.getDouble(row, col));
+					}
+				}
+				cases.add(c);
+			}
+		}
+		return cases;
+	}
+
+	private static boolean rowExist(final ExcelData env, final int row, final int nCols) {
+		for (int col = 0; col < nCols; col++) {
+			if (env.cellExist(row, col)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/***
+	 * Full transient for a single case, no shared mutable state
+	 */
+	static CaseResult calc(
+			final Geom geom,
+			final Conditions cond,
+			final TEProps props,
+			final double Ttarget) throws InputDataException {
+		StepEngine engine = new StepEngine(geom, cond, props);
+		CaseResult res = new CaseResult();
+		double T0 = engine.layerT_mod[0];
+		engine.start();
+		SettleMonitor monitor = Main.createSettleMonitor(cond);
+		EventDetector events = Main.createEventDetector(engine, geom);
+		for (double time = 0; time < cond.timeEnd; time += cond.timeStep) {
+			double Tprev = engine.layerT_mod[0];
+			boolean stop = false;
+			if (events != null) {
+				engine.saveState();
+				engine.step(cond.timeStep);
+				stop = events.check(time, cond.timeStep, () -> {
+					engine.restoreState();
+					engine.step(cond.timeStep);
+				});
+			} else {
+				engine.step(cond.timeStep);
+			}
+			double T = engine.layerT_mod[0];
+			if (Double.isNaN(res.timeToTarget) && !Double.isNaN(Ttarget)
+					&& (Ttarget - T) * (Ttarget - T0) <= 0.) {
+				res.timeToTarget = time + cond.timeStep * (Ttarget - Tprev) / (T - Tprev);
+			}
+			if (monitor != null && monitor.update(time + cond.timeStep, engine)) {
+				res.settlingTime = monitor.getSettlingTime();
+				break;
+			}
+			if (stop) {
+				break;
+			}
+		}
+		res.eventTimes = new double[Main.EVENTS.size()];
+		for (int i = 0; i < res.eventTimes.length; i++) {
+			res.eventTimes[i] = events.getEvents().get(i).getTime();
+		}
+		double mult = geom.nRingsInBattery * geom.nBatteries;
+		res.layerT_mod = engine.layerT_mod.clone();
+		res.I = engine.getI();
+		res.Qc = engine.getQc() * mult;
+		res.Pe = engine.getPe() * mult;
+		res.COP = engine.getCOP();
+		return res;
+	}
+
+	private static void printSummary(
+			final ExcelData out,
+			final List<String> names,
+			final List<Case> cases,
+			final List<CaseResult> results) {
+		ArrayList<Object> vals = new ArrayList<>();
+		vals.add("case");
+		vals.addAll(names);
+		for (int i = 0; i < results.get(0).layerT_mod.length; i++) {
+			vals.add(String.format("T%2d", i));
+		}
+		vals.add("I, A");
+		vals.add("Qc, W");
+		vals.add("Pe, W");
+		vals.add("COP");
+		vals.add("time to target, s");
+		vals.add("settling time, s");
+		for (String spec : Main.EVENTS) {
+			vals.add("event " + spec + ", s");
+		}
+		out.setString(0, 0, vals);
+
+		for (int i = 0; i < results.size(); i++) {
+			CaseResult r = results.get(i);
+			vals.clear();
+			vals.add((double) i);
+			for (String name : names) {
+				Double v = cases.get(i).overrides.get(name);
+				vals.add(v == null ? "" : v);
+			}
+			for (double T : r.layerT_mod) {
+				vals.add(T);
+			}
+			vals.add(r.I);
+			vals.add(r.Qc);
+			vals.add(r.Pe);
+			vals.add(r.COP);
+			vals.add(Double.isNaN(r.timeToTarget) ? "" : r.timeToTarget);
+			vals.add(Double.isNaN(r.settlingTime) ? "" : r.settlingTime);
+			for (double t : r.eventTimes) {
+				vals.add(Double.isNaN(t) ? "" : t);
+			}
+			out.setString(i + 1, 0, vals);
+		}
+	}
+}
@@ -68,6 +68,18 @@ class TECalcRes {
 			final double I, 
 			final Geom geom, 
 			final TEProps props) {
+		this(TinnerJunct, TouterJunct, I, geom, new PrepareConsts(TinnerJunct, TouterJunct, geom, props));
+	}
+	
+	/***
+	 * @param pc already calculated constants (e.g. from {@link PropsCache})
+	 */
+	public TECalcRes(
+			final double TinnerJunct, 
+			final double TouterJunct, 
+			final double I, 
+			final Geom geom, 
+			final PrepareConsts pc) {
 		this.TinnerJunct = TinnerJunct;
 		this.TouterJunct = TouterJunct;
 		this.I = I;
@@ -80,7 +92,7 @@ class TECalcRes {
 			this.Thot = TinnerJunct;
 		}
 
-		pc = new PrepareConsts(TinnerJunct, TouterJunct, geom, props);
+		this.pc = pc;
 
 		QjouleInnerJunct = pc.Re_inner * I * I;
 		QjouleOuterJunct = pc.Re_outer * I * I;
@@ -169,12 +181,15 @@ class TECalcRes {
 		default:
 			mult = 0.;
 		}
+		// battery or module voltage depends on the wiring
+		double multV = type == NormalizationType.METER ? mult
+				: ElectricalNetwork.getSeriesRings(geom, Main.WIRING, type);
 		vals.clear();
 		vals.add(TinnerJunct);
 		vals.add(TouterJunct);
 
 		vals.add(I);
-		vals.add(V * mult);
+		vals.add(V * multV);
 		vals.add(Tcold);
 		vals.add(Thot);
 		vals.add(pc.propsVals.lambda);
@@ -1,5 +1,7 @@
 package freezer;
 
+import java.util.Arrays;
+
 /***
  * Thermoelectrical properties of semiconductor materials
  * @author sdushenkov
@@ -28,6 +30,15 @@ class TEProps {
 	 */
 	public final double[] lambda_n;
 	public final double[] lambda_p;
+	/**
+	 * Cumulative integrals for {@link #getIntAve(double[], double[], double[], double, double)}
+	 */
+	public final double[] intAlpha_n;
+	public final double[] intAlpha_p;
+	public final double[] intSigma_n;
+	public final double[] intSigma_p;
+	public final double[] intLambda_n;
+	public final double[] intLambda_p;
 
 
 	
@@ -69,6 +80,56 @@ class TEProps {
 			sigma_p[i] = env.getDouble(i + FirstRow, FirstCol + 5);
 			lambda_p[i] = env.getDouble(i + FirstRow, FirstCol + 7);
 		}
+		
+		intAlpha_n = getCumulative(T_n, alpha_n);
+		intAlpha_p = getCumulative(T_p, alpha_p);
+		intSigma_n = getCumulative(T_n, sigma_n);
+		intSigma_p = getCumulative(T_p, sigma_p);
+		intLambda_n = getCumulative(T_n, lambda_n);
+		intLambda_p = getCumulative(T_p, lambda_p);
+	}
+	
+	/***
+	 * Copy with every table value multiplied by its factor (Monte Carlo samples, see {@link MonteCarlo})
+	 * @param src nominal properties
+	 * @param alphaMult alpha factors, n points then p points, see {@link #getPointsCount()}
+	 * @param sigmaMult sigma factors
+	 * @param lambdaMult lambda factors
+	 */
+	TEProps(final TEProps src, final double[] alphaMult, final double[] sigmaMult, final double[] lambdaMult) {
+		NTpoints_n = src.NTpoints_n;
+		NTpoints_p = src.NTpoints_p;
+		T_n = src.T_n;
+		T_p = src.T_p;
+		alpha_n = new double[NTpoints_n];
+		alpha_p = new double[NTpoints_p];
+		sigma_n = new double[NTpoints_n];
+		sigma_p = new double[NTpoints_p];
+		lambda_n = new double[NTpoints_n];
+		lambda_p = new double[NTpoints_p];
+		for (int i = 0; i < NTpoints_n; i++) {
+			alpha_n[i] = src.alpha_n[i] * alphaMult[i];
+			sigma_n[i] = src.sigma_n[i] * sigmaMult[i];
+			lambda_n[i] = src.lambda_n[i] * lambdaMult[i];
+		}
+		for (int i = 0; i < NTpoints_p; i++) {
+			alpha_p[i] = src.alpha_p[i] * alphaMult[NTpoints_n + i];
+			sigma_p[i] = src.sigma_p[i] * sigmaMult[NTpoints_n + i];
+			lambda_p[i] = src.lambda_p[i] * lambdaMult[NTpoints_n + i];
+		}
+		intAlpha_n = getCumulative(T_n, alpha_n);
+		intAlpha_p = getCumulative(T_p, alpha_p);
+		intSigma_n = getCumulative(T_n, sigma_n);
+		intSigma_p = getCumulative(T_p, sigma_p);
+		intLambda_n = getCumulative(T_n, lambda_n);
+		intLambda_p = getCumulative(T_p, lambda_p);
+	}
+	
+	/***
+	 * @return table points count, n and p
+	 */
+	public int getPointsCount() {
+		return NTpoints_n + NTpoints_p;
 	}
 	
 	@Override
@@ -111,58 +172,80 @@ class TEProps {
 	}
 
 	
+	/***
+	 * Cumulative trapezoid integrals of table data from the first point<br>
+	 * <code>cum[i] = integral(data, T[0], T[i])</code>
+	 */
+	static double[] getCumulative(final double[] T, final double[] data) {
+		double[] cum = new double[T.length];
+		for (int i = 1; i < T.length; i++) {
+			cum[i] = cum[i - 1] + (data[i - 1] + data[i]) / 2. * (T[i] - T[i - 1]);
+		}
+		return cum;
+	}
+	
+	/***
+	 * @return index i of the table interval [T[i], T[i+1]) containing x, 
+	 * -1 below the table, T.length - 1 above the table
+	 */
+	private static int getInterval(final double[] T, final double x) {
+		if (x < T[0]) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(T, x);
+		return i < 0 ? -i - 2 : i;
+	}
+	
+	/***
+	 * Integral of table data from the first point to x, 
+	 * linear inside the table and constant extrapolation outside
+	 * @param i interval of x, see {@link #getInterval(double[], double)}
+	 */
+	private static double getIntegral(
+			final double[] T, 
+			final double[] data, 
+			final double[] cum, 
+			final int i,
+			final double x) {
+		final int n = T.length;
+		if (i < 0) {
+			return data[0] * (x - T[0]);
+		} else if (i >= n - 1) {
+			return cum[n - 1] + data[n - 1] * (x - T[n - 1]);
+		}
+		return cum[i] + (data[i] + getLinear(T[i], T[i+1], data[i], data[i+1], x)) / 2. * (x - T[i]);
+	}
+	
+	/***
+	 * Integral average of table data over [T0, T1]
+	 * (linear inside the table and constant extrapolation outside), 
+	 * two binary searches and a difference of cumulative integrals
+	 * @param T temperatures, ascending
+	 * @param data values
+	 * @param cum cumulative integrals, see {@link #getCumulative(double[], double[])}
+	 * @param T0 lower bound
+	 * @param T1 upper bound
+	 * @return average value (value at T0 for empty interval)
+	 */
 	static double getIntAve(
 			final double[] T, 
 			final double[] data, 
+			final double[] cum, 
 			final double T0, 
 			final double T1) {
-		int i = T.length - 1;
-		while (T0 < T[i]) {
-			i--;
-			if (i < 0) {
-				break;
-			}
-		}
-		int a = i;
-		i = 0;
-		while (T1 > T[i]) {
-			i++;
-			if (i >= T.length) {
-				break;
+		final int n = T.length;
+		int a = getInterval(T, T0);
+		int b = getInterval(T, T1);
+		if (a == b) {
+			if (a < 0) {
+				return data[0];
+			} else if (a >= n - 1) {
+				return data[n - 1];
 			}
-		}
-		int b = i - 1;
-		
-		if (a == -1 && b == -1) {
-			return data[0];
-		} else if ((a == T.length - 1) && (b == T.length -1) ) {
-			return data[T.length - 1];
-		}
-		
-		if ( a == b) {
 			return (getLinear(T[a], T[a+1], data[a], data[a+1], T0) + 
-					getLinear(T[b], T[b+1], data[b], data[b+1], T1) ) / 2.;
-		}
-		
-		double left;
-		if ( a < 0 ) {
-			left = data[0] * (T[0] - T0);
-		} else {
-			left = (getLinear(T[a], T[a+1], data[a], data[a+1], T0) + data[a+1]) / 2 * (T[a + 1] - T0);
-		}
-		
-		double center = 0.;
-		for (i = a + 1; i < b; i++) {
-			center += (data[i] + data[i+1]) / 2. * (T[i+1] - T[i]);
-		}
-		
-		double right;
-		if ( b >= T.length - 1 ) {
-			right = data[T.length - 1] * (T1 - T[T.length - 1]);
-		} else {
-			right = (getLinear(T[b], T[b+1], data[b], data[b+1], T1) + data[b]) / 2 * (T1 - T[b]);
+					getLinear(T[a], T[a+1], data[a], data[a+1], T1) ) / 2.;
 		}
-		return (left + center + right) / (T1 - T0);
+		return (getIntegral(T, data, cum, b, T1) - getIntegral(T, data, cum, a, T0)) / (T1 - T0);
 	}
 	
 	public static double getLinear(
@@ -1,7 +1,6 @@
 package freezer;
 
 import java.util.ArrayList;
-import Jama.Matrix;
 
 /***
  * energy balance dynamic solver
@@ -47,31 +46,95 @@ class ThermalState {
 		double[] c = new double[Nlayers_mod];
 		double[] d = new double[Nlayers_mod];
 		
+		assemble(geom, cond, layerT_mod, 1., cr0.I, cr0.Qc, cr0.Qh, dt, a, b, c, d);
+
+		this.layerT_mod = new double[Nlayers_mod];
+		solve(geom, a, b, c, d, this.layerT_mod, new double[Nlayers_mod], new double[Nlayers_mod]);
+		
+		leftBalanceOk = isLeftBalanceOk(geom, layerT_mod, 1., this.layerT_mod, cr0.I, cr0.Qc, cr0.Qh, dt, 0.);
+		rightBalanceOk = isRightBalanceOk(geom, cond, layerT_mod, 1., this.layerT_mod, cr0.I, cr0.Qc, cr0.Qh, dt);
+	}
+	
+	/***
+	 * Snapshot of already solved state (for printing purposes)
+	 * @param geom
+	 * @param layerT_mod temperatures, copied
+	 * @param leftBalanceOk
+	 * @param rightBalanceOk
+	 */
+	public ThermalState(
+			final Geom geom,
+			final double[] layerT_mod,
+			final boolean leftBalanceOk,
+			final boolean rightBalanceOk) {
+		Nlayers_mod = geom.Nlayers - 1; 
+		xLayerInner = geom.Xlayer;
+		xLayerOuter = geom.Xlayer + 1;
+		this.layerT_mod = layerT_mod.clone();
+		this.leftBalanceOk = leftBalanceOk;
+		this.rightBalanceOk = rightBalanceOk;
+	}
+	
+	/***
+	 * Fills implicit scheme diagonals for one time step<br>
+	 * <code>capMult * CpM * T(n+1) - dt * (heat flows)(n+1) = CpM * layerT_mod + dt * (sources)</code><br>
+	 * implicit Euler: capMult = 1, layerT_mod = T(n)<br>
+	 * BDF2: capMult = a0, layerT_mod = a1 * T(n) - a2 * T(n-1), see {@link StepEngine}
+	 * @param geom
+	 * @param cond
+	 * @param layerT_mod temperatures history term (temperatures at the beginning of the step for implicit Euler)
+	 * @param capMult capacity multiplier
+	 * @param I current, A (sign only)
+	 * @param Qc the heat absorbed from the cold side per ring, W
+	 * @param Qh the heat released to the hot side per ring, W
+	 * @param dt time step, s
+	 * @param a sub diagonal (out)
+	 * @param b main diagonal (out)
+	 * @param c super diagonal (out)
+	 * @param d right hand side (out)
+	 */
+	static void assemble(
+			final Geom geom,
+			final Conditions cond,
+			final double[] layerT_mod, 
+			final double capMult,
+			final double I,
+			final double Qc,
+			final double Qh,
+			final double dt,
+			final double[] a,
+			final double[] b,
+			final double[] c,
+			final double[] d) {
+		final int Nlayers_mod = geom.Nlayers - 1; 
+		final int xLayerInner = geom.Xlayer;
+		final int xLayerOuter = geom.Xlayer + 1;
+		
 		for (int i = 0; i < Nlayers_mod ; i++) {
 			d[i] = layerT_mod[i] * geom.layerCpM_mod[i];
 		}
-		if (cr0.I > 0.) {
-			d[xLayerInner] -= dt * cr0.Qc;
-			d[xLayerOuter] += dt * cr0.Qh;
+		if (I > 0.) {
+			d[xLayerInner] -= dt * Qc;
+			d[xLayerOuter] += dt * Qh;
 		} else {
-			d[xLayerInner] += dt * cr0.Qh;
-			d[xLayerOuter] -= dt * cr0.Qc;
+			d[xLayerInner] += dt * Qh;
+			d[xLayerOuter] -= dt * Qc;
 		}
 		d[Nlayers_mod - 1] += dt * cond.Touter / geom.layerRh[Nlayers_mod - 1];
 
-		b[0] = 0. + dt / geom.layerRh[0] + 1. * geom.layerCpM_mod[0];
-		b[1] = dt / geom.layerRh[0] + dt / 2. / geom.layerRh[1] + 1. * geom.layerCpM_mod[1];
+		b[0] = 0. + dt / geom.layerRh[0] + capMult * geom.layerCpM_mod[0];
+		b[1] = dt / geom.layerRh[0] + dt / 2. / geom.layerRh[1] + capMult * geom.layerCpM_mod[1];
 		for (int i = 2; i < xLayerInner; i++) {
-			b[i] = dt / 2. / geom.layerRh[i-1] + dt / 2. / geom.layerRh[i] + 1. * geom.layerCpM_mod[i];
+			b[i] = dt / 2. / geom.layerRh[i-1] + dt / 2. / geom.layerRh[i] + capMult * geom.layerCpM_mod[i];
 		}
-		b[xLayerInner] = dt / 2. / geom.layerRh[xLayerInner - 1] + 0. + 1. * geom.layerCpM_mod[xLayerInner];
+		b[xLayerInner] = dt / 2. / geom.layerRh[xLayerInner - 1] + 0. + capMult * geom.layerCpM_mod[xLayerInner];
 		
 		
 		for (int i = xLayerOuter + 1 ; i < Nlayers_mod - 1; i++) {
-			b[i] = dt / 2. / geom.layerRh[i-1] + dt / 2. / geom.layerRh[i] + 1. * geom.layerCpM_mod[i];
+			b[i] = dt / 2. / geom.layerRh[i-1] + dt / 2. / geom.layerRh[i] + capMult * geom.layerCpM_mod[i];
 		}
-		b[xLayerOuter] = 0. + dt / 2. / geom.layerRh[xLayerOuter] + 1. * geom.layerCpM_mod[xLayerOuter];
-		b[Nlayers_mod - 1] = dt / 2. / geom.layerRh[Nlayers_mod - 1 - 1] + dt / geom.layerRh[Nlayers_mod - 1] + 1. * geom.layerCpM_mod[Nlayers_mod - 1];
+		b[xLayerOuter] = 0. + dt / 2. / geom.layerRh[xLayerOuter] + capMult * geom.layerCpM_mod[xLayerOuter];
+		b[Nlayers_mod - 1] = dt / 2. / geom.layerRh[Nlayers_mod - 1 - 1] + dt / geom.layerRh[Nlayers_mod - 1] + capMult * geom.layerCpM_mod[Nlayers_mod - 1];
 		
 		a[0] = 0.;
 		a[1] =  - dt / geom.layerRh[0];
@@ -85,78 +148,92 @@ class ThermalState {
 			c[i] = - dt / 2. / geom.layerRh[i];
 		}
 		c[xLayerInner] = 0.;
-
-			
-			
-		double[][] arrALeft = new double[xLayerInner + 1][xLayerInner + 1];
-		arrALeft[0][0] = b[0];
-		arrALeft[0][1] = c[0];
-		for (int i = 1; i <= xLayerInner; i++) {
-			arrALeft[i][i-1] = a[i];
-			arrALeft[i][i] = b[i];
-			if (i != xLayerInner) {
-				arrALeft[i][i+1] = c[i];
-			}
-		}
-		
-		double[][] arrARight = new double[Nlayers_mod - xLayerOuter][Nlayers_mod - xLayerOuter];
-
-		for (int i = 0; i < Nlayers_mod - xLayerOuter - 1; i++) {
-			if (i != 0) {
-				arrARight[i][i-1] = a[i + xLayerOuter];
-			}
-			arrARight[i][i] = b[i + xLayerOuter];
-			arrARight[i][i+1] = c[i + xLayerOuter];
-		}
-		
-		arrARight[Nlayers_mod - xLayerOuter - 1][Nlayers_mod - xLayerOuter - 1 - 1] = a[Nlayers_mod - 1];
-		arrARight[Nlayers_mod - xLayerOuter - 1][Nlayers_mod - xLayerOuter -  1] = b[Nlayers_mod - 1];
-		Matrix Aleft = new Matrix(arrALeft);
-		Matrix Aright = new Matrix(arrARight);
-		Matrix Bleft = new Matrix(xLayerInner + 1, 1);
-		Matrix Bright = new Matrix(Nlayers_mod - xLayerOuter , 1);
-		for (int i = 0; i < xLayerInner + 1; i++) {
-			Bleft.set(i, 0, d[i]);
-		}
-		for (int i = 0; i < Nlayers_mod - xLayerOuter; i++) {
-			Bright.set(i, 0, d[i + xLayerOuter]);
-		}
-		
-		Matrix Tleft = Aleft.solve(Bleft);
-		Matrix Tright = Aright.solve(Bright);
-		
-		this.layerT_mod = new double[Nlayers_mod];
-		for (int i = 0; i < xLayerInner + 1; i++) {
-			this.layerT_mod[i] = Tleft.get(i, 0);
-		}
-		for (int i = 0; i < Nlayers_mod - xLayerOuter; i++) {
-			this.layerT_mod[i + xLayerOuter] = Tright.get(i, 0);
-		}
-		
+	}
+	
+	/***
+	 * Adds inner fluid flow through the ring to assembled diagonals (implicit upwind)<br>
+	 * <code>dt * flowCp * (Tinlet - T0(n+1))</code> to the inner fluid balance
+	 * @param flowCp mass flow * heat capacity per ring, W/K
+	 * @param Tinlet fluid temperature at the ring inlet (end of the step), 'C
+	 * @param dt time step, s
+	 * @param b main diagonal (in/out)
+	 * @param d right hand side (in/out)
+	 */
+	static void addInletFlow(
+			final double flowCp,
+			final double Tinlet,
+			final double dt,
+			final double[] b,
+			final double[] d) {
+		b[0] += dt * flowCp;
+		d[0] += dt * flowCp * Tinlet;
+	}
+	
+	/***
+	 * Solves left (up to inner junction) and right (from outer junction) blocks
+	 * @param geom
+	 * @param a sub diagonal
+	 * @param b main diagonal
+	 * @param c super diagonal
+	 * @param d right hand side
+	 * @param layerT_mod temperatures at the end of the step (out)
+	 * @param cp scratch array, length Nlayers - 1
+	 * @param dp scratch array, length Nlayers - 1
+	 */
+	static void solve(
+			final Geom geom,
+			final double[] a,
+			final double[] b,
+			final double[] c,
+			final double[] d,
+			final double[] layerT_mod,
+			final double[] cp,
+			final double[] dp) {
+		final int Nlayers_mod = geom.Nlayers - 1; 
+		TridiagonalSolver.solve(a, b, c, d, layerT_mod, 0, geom.Xlayer, cp, dp);
+		TridiagonalSolver.solve(a, b, c, d, layerT_mod, geom.Xlayer + 1, Nlayers_mod - 1, cp, dp);
+	}
+	
+	/***
+	 * @param Qinlet inner fluid flow heat to the ring (at the end of the step), W, see {@link #addInletFlow}
+	 */
+	static boolean isLeftBalanceOk(
+			final Geom geom,
+			final double[] layerT_old,
+			final double capMult,
+			final double[] layerT_new,
+			final double I,
+			final double Qc,
+			final double Qh,
+			final double dt,
+			final double Qinlet) {
 		double balanceDQleft = 0.;
-		for (int i = 0; i <= xLayerInner; i++) {
-			balanceDQleft += (this.layerT_mod[i] - layerT_mod[i]) * geom.layerCpM_mod[i];
-		}
-		
-		double balanceFlowLeftJunction;
-		double balanceFlowRightJunction;
-		if (cr0.I > 0.) {
-			balanceFlowLeftJunction = - dt * cr0.Qc;
-			balanceFlowRightJunction = dt * cr0.Qh;
-		} else {
-			balanceFlowLeftJunction = dt * cr0.Qh;
-			balanceFlowRightJunction = - dt * cr0.Qc;
+		for (int i = 0; i <= geom.Xlayer; i++) {
+			balanceDQleft += (capMult * layerT_new[i] - layerT_old[i]) * geom.layerCpM_mod[i];
 		}
+		double balanceFlowLeftJunction = (I > 0. ? - dt * Qc : dt * Qh) + dt * Qinlet;
+		return Math.abs(balanceDQleft - ( balanceFlowLeftJunction)) < 
+				Math.abs( balanceFlowLeftJunction) * 1e-6;
+	}
+	
+	static boolean isRightBalanceOk(
+			final Geom geom,
+			final Conditions cond,
+			final double[] layerT_old,
+			final double capMult,
+			final double[] layerT_new,
+			final double I,
+			final double Qc,
+			final double Qh,
+			final double dt) {
+		final int Nlayers_mod = geom.Nlayers - 1; 
+		double balanceFlowRightJunction = I > 0. ? dt * Qh : - dt * Qc;
 		double balanceDQRight = 0.;
-		for (int i = xLayerOuter; i < Nlayers_mod; i++) {
-			balanceDQRight += (this.layerT_mod[i] - layerT_mod[i]) * geom.layerCpM_mod[i];
+		for (int i = geom.Xlayer + 1; i < Nlayers_mod; i++) {
+			balanceDQRight += (capMult * layerT_new[i] - layerT_old[i]) * geom.layerCpM_mod[i];
 		}
-		double balanceFlowRight = (cond.Touter - this.layerT_mod[Nlayers_mod - 1]) / geom.layerRh[Nlayers_mod - 1] * dt;
-		
-		
-		leftBalanceOk = Math.abs(balanceDQleft - ( balanceFlowLeftJunction)) < 
-				Math.abs( balanceFlowLeftJunction) * 1e-6;
-		rightBalanceOk = Math.abs(balanceDQRight - (balanceFlowRightJunction + balanceFlowRight)) < 
+		double balanceFlowRight = (cond.Touter - layerT_new[Nlayers_mod - 1]) / geom.layerRh[Nlayers_mod - 1] * dt;
+		return Math.abs(balanceDQRight - (balanceFlowRightJunction + balanceFlowRight)) < 
 				Math.abs(balanceFlowRightJunction + balanceFlowRight) * 1e-6;
 	}
 		
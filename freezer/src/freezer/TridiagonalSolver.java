@@ -0,0 +1,63 @@
+package freezer;
+
+/***
+ * Tridiagonal linear system solver (Thomas algorithm), O(n)
+ */
+final class TridiagonalSolver {
+	private TridiagonalSolver() {
+	}
+
+	/***
+	 * Solves rows <code>from..to</code> (inclusive) of the system<br>
+	 * <code>
+	 * a[i] * x[i-1] + b[i] * x[i] + c[i] * x[i+1] = d[i]
+	 * </code><br>
+	 * <i>note: a[from] and c[to] are ignored, so a block can be cut out of a larger system</i>
+	 * @param a sub diagonal
+	 * @param b main diagonal
+	 * @param c super diagonal
+	 * @param d right hand side
+	 * @param x solution (may be the same array as d)
+	 * @param from first row of the block
+	 * @param to last row of the block
+	 * @param cp scratch array, length at least <code>to + 1</code>
+	 * @param dp scratch array, length at least <code>to + 1</code>
+	 */
+	static void solve(
+			final double[] a,
+			final double[] b,
+			final double[] c,
+			final double[] d,
+			final double[] x,
+			final int from,
+			final int to,
+			final double[] cp,
+			final double[] dp) {
+		cp[from] = from == to ? 0. : c[from] / b[from];
+		dp[from] = d[from] / b[from];
+		for (int i = from + 1; i <= to; i++) {
+			double m = b[i] - a[i] * cp[i - 1];
+			cp[i] = i == to ? 0. : c[i] / m;
+			dp[i] = (d[i] - a[i] * dp[i - 1]) / m;
+		}
+		x[to] = dp[to];
+		for (int i = to - 1; i >= from; i--) {
+			x[i] = dp[i] - cp[i] * x[i + 1];
+		}
+	}
+
+	/***
+	 * Same as {@link #solve(double[], double[], double[], double[], double[], int, int, double[], double[])}
+	 * with scratch arrays allocated internally
+	 */
+	static void solve(
+			final double[] a,
+			final double[] b,
+			final double[] c,
+			final double[] d,
+			final double[] x,
+			final int from,
+			final int to) {
+		solve(a, b, c, d, x, from, to, new double[to + 1], new double[to + 1]);
+	}
+}